@@ -1,233 +1,124 @@
+import java.util.Arrays;
 import java.util.function.Predicate;
 
-//Abstract class to represent Sentinels and Nodes 
-abstract class ANode<T> {
-  ANode<T> next;
-  ANode<T> prev;
-
-  ANode(ANode<T> next, ANode<T> prev) {
-    this.next = next;
-    this.prev = prev;
-  }
-
-  // Counts the number of nodes in this ANode
-  abstract int size();
-
-  // Helper for size method
-  abstract int sizeHelp();
-
-  //EFFECT: inserts the given object at the head of the Deque list
-  void addAtHead(T first) {
-    // if called on a ANode<T> that's not a sentinel,
-    // this method should do nothing
-  }
-
-  //EFFECT: Inserts the given T at the end of the list 
-  void addAtTail(T first) {
-    // if called on a ANode<T> that's not a sentinel,
-    // this method should do nothing
-  }
-
-  // Returns the first node in the list that applies to the given predicate
-  abstract ANode<T> find(Predicate<T> pred);
-
-  // Helper for find
-  abstract ANode<T> findHelp(Predicate<T> pred);
-
-  // EFFECT: Sets the next of this to the given node
-  void setNext(ANode<T> newNext) {
-    this.next = newNext;
-  }
-
-  // EFFECT: Sets the previous of this to the given node
-  void setPrev(ANode<T> newPrev) {
-    this.prev = newPrev;
-  }
-
-  // EFFECT: Removes this node from the list
-  abstract T remove();
-
-}
-
-//Class to represent a Node in a Deque
-class Node<T> extends ANode<T> {
-  T data;
-
-  Node(T data) {
-    super(null, null);
-    this.data = data;
-  }
-
-  Node(T data, ANode<T> next, ANode<T> prev) {
-    super(new Utils().checkNull(next), new Utils().checkNull(prev));
-    this.data = data;
-    prev.next = this;
-    next.prev = this;
-
-  }
-
-  // Counts the size of this node
-  public int size() {
-    return 1 + this.next.sizeHelp();
-  }
+//Class to represent a Deque which is a double ended queue, kept in a growable
+//circular array: the items are items[head], items[head + 1], ... wrapping
+//around the end of the array, and the count is stored so size is constant time
+class Deque<T> {
+  Object[] items;
+  // index of the first item
+  int head;
+  // number of items in this Deque
+  int count;
 
-  // Helper for size
-  public int sizeHelp() {
-    return 1 + this.next.sizeHelp();
+  Deque() {
+    this(16);
   }
 
-  // finds the first node in this list that applies to the given predicate
-  ANode<T> find(Predicate<T> pred) {
-    if (pred.test(this.data)) {
-      return this;
+  // makes an empty Deque with room for at least the given number of items
+  // before it has to grow
+  Deque(int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Can not have a negative capacity");
     }
-    return this.next.findHelp(pred);
-  }
-
-  // Helper for find
-  ANode<T> findHelp(Predicate<T> pred) {
-    if (pred.test(this.data)) {
-      return this;
+    // keep the capacity a power of two so indices wrap with a mask
+    int size = 1;
+    while (size < capacity) {
+      size *= 2;
     }
-    return this.next.findHelp(pred);
-  }
-
-  // EFFECT: Removes this node from the list
-  // returns the data of the node removed
-  public T remove() {
-    this.prev.setNext(this.next);
-    this.next.setPrev(this.prev);
-
-    return this.data;
-  }
-
-}
-
-//Class to represent a Sentinel in a Deque
-class Sentinel<T> extends ANode<T> {
-  Sentinel() {
-    super(null, null);
-    this.next = this;
-    this.prev = this;
-  }
-
-  // Computes the size of this Sentinel
-  public int size() {
-    return this.next.sizeHelp();
-  }
-
-  // Helper for size method
-  public int sizeHelp() {
-    return 0;
-  }
-
-  // EFFECT: Inserts the given T at the front of this list
-  void addAtHead(T first) {
-    this.next = new Node<T>(first, this.next, this);
-  }
-
-  // EFFECT: Inserts the given T at the end of this list
-  void addAtTail(T tail) {
-    this.prev = new Node<T>(tail, this, this.prev);
-  }
-
-  // EFFECT: Removes the first node from this Deque
-  T removeFromHead() {
-    return this.next.remove();
-
-  }
-
-  // EFFECT: Removes the last node from this Deque
-  T removeFromTail() {
-    return this.prev.remove();
-  }
-
-  // finds the first node in this list that applies to the given predicate
-  ANode<T> find(Predicate<T> pred) {
-    return this.next.findHelp(pred);
+    this.items = new Object[size];
+    this.head = 0;
+    this.count = 0;
   }
 
-  // Helper for find method
-  ANode<T> findHelp(Predicate<T> pred) {
-    return this;
-  }
-
-  // When asked to remove this Sentinel returns the Sentinel instead
-  // returns null because you can not remove Sentinel from a deque, and
-  // Sentinel has no data
-  public T remove() {
-    return null;
-  }
-
-}
-
-//Class to represent a Deque which is a doubl ended queue
-class Deque<T> {
-  Sentinel<T> header;
-
-  Deque() {
-    this.header = new Sentinel<T>();
+  //Computes the size of this Deque
+  int size() {
+    return this.count;
   }
 
-  Deque(Sentinel<T> header) {
-    this.header = header;
+  //Is this Deque empty?
+  boolean isEmpty() {
+    return this.count == 0;
   }
 
-  //Computes the size of this Deque
-  int size() {
-    return this.header.size();
+  // the array index of the i-th item from the head
+  int slot(int i) {
+    return (this.head + i) & (this.items.length - 1);
   }
 
   // Inserts the given T at the front of the list
   // EFFECT: inserts the given object at the head of the Deque list
   void addAtHead(T first) {
-
-    this.header.addAtHead(first);
+    this.ensureRoom();
+    this.head = this.slot(this.items.length - 1);
+    this.items[this.head] = first;
+    this.count += 1;
   }
 
   // Inserts the given T at the end of the list
   // EFFECT: inserts the given object at the tail of the Deque list
   void addAtTail(T tail) {
-
-    this.header.addAtTail(tail);
+    this.ensureRoom();
+    this.items[this.slot(this.count)] = tail;
+    this.count += 1;
   }
 
   // EFFECT: removes the object from the head of the Deque list
   T removeFromHead() {
-    if (this.size() == 0) {
+    if (this.count == 0) {
       throw new RuntimeException("Can not remove head from empty list");
     }
-    return this.header.removeFromHead();
+    T result = this.get(0);
+    this.items[this.head] = null;
+    this.head = this.slot(1);
+    this.count -= 1;
+    return result;
   }
 
   // EFFECT: removes the object from the tail of the Deque list
   T removeFromTail() {
-    if (this.size() == 0) {
+    if (this.count == 0) {
       throw new RuntimeException("Can not remove tail from empty list");
     }
-    return this.header.removeFromTail();
+    T result = this.get(this.count - 1);
+    this.items[this.slot(this.count - 1)] = null;
+    this.count -= 1;
+    return result;
   }
 
-  // finds the first node in this list that applies to the given predicate
-  ANode<T> find(Predicate<T> pred) {
-    return this.header.find(pred);
+  // the i-th item from the head of this Deque
+  @SuppressWarnings("unchecked")
+  T get(int i) {
+    if (i < 0 || i >= this.count) {
+      throw new IndexOutOfBoundsException("No item at index " + i);
+    }
+    return (T) this.items[this.slot(i)];
   }
 
-  // EFFECT: Removes the given Node from this List
-  // removes the given node, but returns the data of the removed node
-  T removeNode(ANode<T> n) {
-    return n.remove();
+  // finds the first item in this list that applies to the given predicate,
+  // or null if there isn't one
+  T find(Predicate<T> pred) {
+    for (int i = 0; i < this.count; i++) {
+      if (pred.test(this.get(i))) {
+        return this.get(i);
+      }
+    }
+    return null;
   }
 
-  /*
-   * VERSION of removeNode that takes in the data of the node and removes the 
-   * corresponding node
-  T removeNode1(T data) {
-   return this.removeNode(
-     this.find(
-         new SameDataAs<T>(data)));
-  }*/
-
+  // EFFECT: doubles the array, unwrapping the items to start at index 0, if
+  // there is no room for another item
+  void ensureRoom() {
+    if (this.count < this.items.length) {
+      return;
+    }
+    Object[] bigger = new Object[Math.max(1, this.items.length * 2)];
+    for (int i = 0; i < this.count; i++) {
+      bigger[i] = this.items[this.slot(i)];
+    }
+    this.items = bigger;
+    this.head = 0;
+  }
 }
 
 //Class to represent useful functions
@@ -288,7 +179,7 @@ class Queue<T> implements ICollection<T> {
 
   //Is this queue empty?
   public boolean isEmpty() {
-    return this.items.size() > 0;
+    return this.items.isEmpty();
   }
 
   //what is the size of this queue
@@ -317,7 +208,7 @@ class Stack<T> implements ICollection<T> {
 
   //Is this queue empty?
   public boolean isEmpty() {
-    return this.items.size() > 0;
+    return this.items.isEmpty();
   }
 
   //what is the size of this stack?
@@ -335,3 +226,246 @@ class Stack<T> implements ICollection<T> {
     return this.items.removeFromHead();
   }
 }
+
+//interface to represent collections of ints, such as cell indices, for DFS
+//and BFS without boxing
+interface IIntCollection {
+  //Is this collection empty?
+  boolean isEmpty();
+
+  // what is the size of this collection
+  int size();
+
+  // add the given int to this collection
+  void add(int i);
+
+  // remove the first int from this collection
+  int remove();
+
+  // EFFECT: removes every int from this collection
+  void clear();
+}
+
+//class to represent a Queue of ints, kept in a growable circular int array
+class IntQueue implements IIntCollection {
+  int[] items;
+  // index of the first int
+  int head;
+  // number of ints in this queue
+  int count;
+
+  IntQueue() {
+    this(16);
+  }
+
+  // makes an empty queue with room for at least the given number of ints
+  IntQueue(int capacity) {
+    // keep the capacity a power of two so indices wrap with a mask
+    int size = 1;
+    while (size < capacity) {
+      size *= 2;
+    }
+    this.items = new int[size];
+  }
+
+  //Is this queue empty?
+  public boolean isEmpty() {
+    return this.count == 0;
+  }
+
+  //what is the size of this queue
+  public int size() {
+    return this.count;
+  }
+
+  //add the given int to the end of this queue
+  public void add(int i) {
+    if (this.count == this.items.length) {
+      // unwrap the ints into an array twice as big
+      int[] bigger = new int[this.items.length * 2];
+      for (int k = 0; k < this.count; k++) {
+        bigger[k] = this.items[(this.head + k) & (this.items.length - 1)];
+      }
+      this.items = bigger;
+      this.head = 0;
+    }
+    this.items[(this.head + this.count) & (this.items.length - 1)] = i;
+    this.count += 1;
+  }
+
+  //remove the first int from this queue
+  public int remove() {
+    if (this.count == 0) {
+      throw new RuntimeException("Can not remove from an empty queue");
+    }
+    int result = this.items[this.head];
+    this.head = (this.head + 1) & (this.items.length - 1);
+    this.count -= 1;
+    return result;
+  }
+
+  // EFFECT: empties this queue, keeping its array
+  public void clear() {
+    this.head = 0;
+    this.count = 0;
+  }
+}
+
+//class to represent a Stack of ints, kept in a growable int array
+class IntStack implements IIntCollection {
+  int[] items;
+  // number of ints in this stack
+  int count;
+
+  IntStack() {
+    this(16);
+  }
+
+  // makes an empty stack with room for the given number of ints
+  IntStack(int capacity) {
+    this.items = new int[Math.max(1, capacity)];
+  }
+
+  //Is this stack empty?
+  public boolean isEmpty() {
+    return this.count == 0;
+  }
+
+  //what is the size of this stack?
+  public int size() {
+    return this.count;
+  }
+
+  //add the given int to the top of this stack
+  public void add(int i) {
+    if (this.count == this.items.length) {
+      this.items = Arrays.copyOf(this.items, this.items.length * 2);
+    }
+    this.items[this.count] = i;
+    this.count += 1;
+  }
+
+  //remove the top int from this stack
+  public int remove() {
+    if (this.count == 0) {
+      throw new RuntimeException("Can not remove from an empty stack");
+    }
+    this.count -= 1;
+    return this.items[this.count];
+  }
+
+  // EFFECT: empties this stack, keeping its array
+  public void clear() {
+    this.count = 0;
+  }
+}
+
+//class to represent a priority queue of the ints [0, n), each with a long key,
+//kept in a binary min heap with the heap position of every int so its key can
+//be lowered in place
+class IntHeap {
+  // the ints in heap order
+  int[] heap;
+  // the position of every int in the heap, or -1 if it isn't in the heap
+  int[] pos;
+  // the key of every int
+  long[] keys;
+  // number of ints in this heap
+  int count;
+
+  IntHeap(int n) {
+    this.heap = new int[n];
+    this.pos = new int[n];
+    this.keys = new long[n];
+    Arrays.fill(this.pos, -1);
+  }
+
+  //Is this heap empty?
+  boolean isEmpty() {
+    return this.count == 0;
+  }
+
+  //what is the size of this heap?
+  int size() {
+    return this.count;
+  }
+
+  //is the given int in this heap?
+  boolean contains(int i) {
+    return this.pos[i] != -1;
+  }
+
+  // EFFECT: adds the given int with the given key, or lowers its key if it is
+  // already in this heap with a larger one
+  void add(int i, long key) {
+    if (this.contains(i)) {
+      if (key < this.keys[i]) {
+        this.keys[i] = key;
+        this.siftUp(this.pos[i]);
+      }
+      return;
+    }
+    this.keys[i] = key;
+    this.heap[this.count] = i;
+    this.pos[i] = this.count;
+    this.count += 1;
+    this.siftUp(this.count - 1);
+  }
+
+  // EFFECT: removes the int with the smallest key from this heap
+  int remove() {
+    if (this.count == 0) {
+      throw new RuntimeException("Can not remove from an empty heap");
+    }
+    int min = this.heap[0];
+    this.count -= 1;
+    this.pos[min] = -1;
+    if (this.count > 0) {
+      this.heap[0] = this.heap[this.count];
+      this.pos[this.heap[0]] = 0;
+      this.siftDown(0);
+    }
+    return min;
+  }
+
+  // EFFECT: empties this heap
+  void clear() {
+    for (int k = 0; k < this.count; k++) {
+      this.pos[this.heap[k]] = -1;
+    }
+    this.count = 0;
+  }
+
+  // EFFECT: moves the int at the given heap position up until its parent's key
+  // is no larger
+  void siftUp(int k) {
+    int i = this.heap[k];
+    while (k > 0 && this.keys[this.heap[(k - 1) / 2]] > this.keys[i]) {
+      this.heap[k] = this.heap[(k - 1) / 2];
+      this.pos[this.heap[k]] = k;
+      k = (k - 1) / 2;
+    }
+    this.heap[k] = i;
+    this.pos[i] = k;
+  }
+
+  // EFFECT: moves the int at the given heap position down until neither child
+  // has a smaller key
+  void siftDown(int k) {
+    int i = this.heap[k];
+    while (2 * k + 1 < this.count) {
+      int child = 2 * k + 1;
+      if (child + 1 < this.count && this.keys[this.heap[child + 1]] < this.keys[this.heap[child]]) {
+        child += 1;
+      }
+      if (this.keys[this.heap[child]] >= this.keys[i]) {
+        break;
+      }
+      this.heap[k] = this.heap[child];
+      this.pos[this.heap[k]] = k;
+      k = child;
+    }
+    this.heap[k] = i;
+    this.pos[i] = k;
+  }
+}
@@ -0,0 +1,394 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import java.awt.Color;
+
+// Class to represent a compact grid for a maze, using one byte per cell
+// instead of Cell/Edge objects
+// - a cell is addressed by its index, y * width + x
+// - a cell's color is a byte too, an index into the PALETTE
+// - an edge is addressed by 2 * index of the cell it leaves from, + 0 for the
+//   edge going right and + 1 for the edge going down
+class MazeGrid {
+  // bits of a cell's mask
+  static final byte RIGHT_WALL = 1;
+  static final byte BOTTOM_WALL = 2;
+  static final byte VISITED = 4;
+
+  // edge weights are in the range [0, MAX_WEIGHT)
+  static final int MAX_WEIGHT = 50;
+
+  // the colors a cell can be, by their index in the PALETTE
+  static final byte GRAY = 0;
+  static final byte GOAL = 1;
+  static final byte PLAYER = 2;
+  static final byte TRAIL = 3;
+  static final byte SEARCHED = 4;
+  static final byte ANSWER = 5;
+  static final Color[] PALETTE = new Color[] { Color.gray, Color.blue,
+      new Color(255, 51, 51), new Color(255, 153, 153), new Color(102, 153, 153),
+      Color.orange };
+
+  // Width of the grid
+  int width;
+  // Height of the grid
+  int height;
+  // wall/visited mask of every cell
+  byte[] cells;
+  // weight of every edge, indexed by edge
+  int[] weights;
+  // palette index of the color of every cell
+  byte[] colors;
+
+  MazeGrid(int width, int height) {
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException("A maze must have at least one cell");
+    }
+    this.width = width;
+    this.height = height;
+    this.cells = new byte[width * height];
+    this.weights = new int[2 * width * height];
+    this.colors = new byte[width * height];
+    // every cell starts with both of its walls up
+    Arrays.fill(this.cells, (byte) (RIGHT_WALL | BOTTOM_WALL));
+  }
+
+  // the number of cells in this grid
+  int size() {
+    return this.cells.length;
+  }
+
+  // the index of the cell at the given coordinates
+  int index(int x, int y) {
+    return (y * this.width) + x;
+  }
+
+  // the x coordinate of the cell at the given index
+  int xOf(int cell) {
+    return cell % this.width;
+  }
+
+  // the y coordinate of the cell at the given index
+  int yOf(int cell) {
+    return cell / this.width;
+  }
+
+  // the edge going right out of the given cell
+  int rightEdge(int cell) {
+    return 2 * cell;
+  }
+
+  // the edge going down out of the given cell
+  int bottomEdge(int cell) {
+    return (2 * cell) + 1;
+  }
+
+  // the cell the given edge leaves from (its left or top cell)
+  int edgeFrom(int edge) {
+    return edge >> 1;
+  }
+
+  // the cell the given edge goes to (its right or bottom cell)
+  int edgeTo(int edge) {
+    if ((edge & 1) == 0) {
+      return this.edgeFrom(edge) + 1;
+    }
+    return this.edgeFrom(edge) + this.width;
+  }
+
+  // is the given edge inside this grid?
+  boolean hasEdge(int edge) {
+    int from = this.edgeFrom(edge);
+    if ((edge & 1) == 0) {
+      return this.xOf(from) < this.width - 1;
+    }
+    return this.yOf(from) < this.height - 1;
+  }
+
+  // the edge connecting the two given adjacent cells, or -1 if they aren't
+  // adjacent
+  int edgeBetween(int a, int b) {
+    int low = Math.min(a, b);
+    int high = Math.max(a, b);
+    if (high - low == 1 && this.xOf(high) != 0) {
+      return this.rightEdge(low);
+    }
+    if (high - low == this.width) {
+      return this.bottomEdge(low);
+    }
+    return -1;
+  }
+
+  // EFFECT: sets the weight of the given edge
+  // (the searches and sorts over weights count on them being in the range
+  // [0, MAX_WEIGHT), so nothing outside it is ever stored)
+  void setWeight(int edge, int weight) {
+    if (weight < 0 || weight >= MAX_WEIGHT) {
+      throw new IllegalArgumentException("An edge weight must be at least 0 and less than "
+          + MAX_WEIGHT);
+    }
+    this.weights[edge] = weight;
+  }
+
+  // EFFECT: gives every edge in this grid a random weight
+  void setRandomWeights(Random r) {
+    this.setRandomWeights(r, 0, this.height);
+  }
+
+  // EFFECT: gives every edge leaving the rows [firstRow, endRow) a random weight
+  void setRandomWeights(Random r, int firstRow, int endRow) {
+    for (int e = 2 * firstRow * this.width; e < 2 * endRow * this.width; e++) {
+      if (this.hasEdge(e)) {
+        // always in range, so setWeight's check can be skipped
+        this.weights[e] = r.nextInt(MAX_WEIGHT);
+      }
+    }
+  }
+
+  // EFFECT: gives every edge in this grid a random weight, the given number of
+  // strips of rows each drawing theirs in parallel from a generator of their
+  // own, seeded from r
+  void setRandomWeights(Random r, int strips) {
+    int[] firstRows = this.stripRows(strips);
+    Random[] randoms = new Random[firstRows.length - 1];
+    for (int s = 0; s < randoms.length; s++) {
+      randoms[s] = new Random(r.nextLong());
+    }
+    IntStream.range(0, randoms.length).parallel()
+        .forEach(s -> this.setRandomWeights(randoms[s], firstRows[s], firstRows[s + 1]));
+  }
+
+  // where each of the given number of strips of rows starts: strip s is the
+  // rows [firstRows[s], firstRows[s + 1]), and there are never more strips
+  // than rows
+  int[] stripRows(int strips) {
+    int count = Math.max(1, Math.min(strips, this.height));
+    int[] firstRows = new int[count + 1];
+    for (int s = 0; s <= count; s++) {
+      firstRows[s] = s * this.height / count;
+    }
+    return firstRows;
+  }
+
+  // the edges inside this grid, ordered by weight from smallest to largest
+  int[] edgesByWeight() {
+    return this.edgesByWeight(0, this.height);
+  }
+
+  // the edges between cells in the rows [firstRow, endRow), ordered by weight
+  // from smallest to largest
+  int[] edgesByWeight(int firstRow, int endRow) {
+    int[] edges = new int[2 * (endRow - firstRow) * this.width];
+    int count = 0;
+    for (int e = 2 * firstRow * this.width; e < 2 * endRow * this.width; e++) {
+      if (this.hasEdge(e) && this.yOf(this.edgeTo(e)) < endRow) {
+        edges[count] = e;
+        count += 1;
+      }
+    }
+    return this.sortByWeight(edges, count);
+  }
+
+  // the first count of the given edges, ordered by weight from smallest to
+  // largest (a stable counting sort, since weights are in the range
+  // [0, MAX_WEIGHT))
+  int[] sortByWeight(int[] edges, int count) {
+    // starts[w] is where the first edge of weight w goes
+    int[] starts = new int[MAX_WEIGHT + 1];
+    for (int i = 0; i < count; i++) {
+      starts[this.weights[edges[i]] + 1] += 1;
+    }
+    for (int w = 1; w < starts.length; w++) {
+      starts[w] += starts[w - 1];
+    }
+
+    int[] sorted = new int[count];
+    for (int i = 0; i < count; i++) {
+      int w = this.weights[edges[i]];
+      sorted[starts[w]] = edges[i];
+      starts[w] += 1;
+    }
+    return sorted;
+  }
+
+  // EFFECT: knocks down the walls along a spanning tree of the cells in the
+  // rows [firstRow, endRow), by krusgal's algorithm
+  // returns the groups of those cells, numbered from the first cell of firstRow
+  UnionFind kruskal(int firstRow, int endRow) {
+    int offset = firstRow * this.width;
+    UnionFind groups = new UnionFind((endRow - firstRow) * this.width);
+    int[] edges = this.edgesByWeight(firstRow, endRow);
+    for (int i = 0; groups.groups > 1 && i < edges.length; i++) {
+      int e = edges[i];
+      if (groups.union(this.edgeFrom(e) - offset, this.edgeTo(e) - offset)) {
+        this.openEdge(e);
+      }
+    }
+    return groups;
+  }
+
+  // EFFECT: knocks down the walls along a spanning tree of this grid: the given
+  // number of strips of rows are each built by krusgal's algorithm in parallel,
+  // all but the last leaving out their last row, then those boundary rows are
+  // joined to the strips around them by krusgal's algorithm over every edge
+  // touching them
+  // returns the groups of the cells, all joined into one
+  // (strips only touch their own cells, so they can't get in each other's way,
+  // and a boundary row joins its strips wherever its own tree reaches them, so
+  // they are crossed in many places instead of one)
+  UnionFind stripKruskal(int strips) {
+    int[] firstRows = this.stripRows(strips);
+    int count = firstRows.length - 1;
+    UnionFind[] parts = new UnionFind[count];
+    IntStream.range(0, count).parallel()
+        .forEach(s -> parts[s] = this.kruskal(firstRows[s], this.innerEnd(firstRows, s)));
+
+    UnionFind groups = new UnionFind(this.size());
+    for (int s = 0; s < count; s++) {
+      groups.absorb(parts[s], firstRows[s] * this.width);
+    }
+
+    // the edges along each boundary row and from it up into its own strip and
+    // down into the next one are left to join the strips with
+    int[] boundary = new int[3 * (count - 1) * this.width];
+    int boundaryCount = 0;
+    for (int s = 0; s < count - 1; s++) {
+      int row = firstRows[s + 1] - 1;
+      for (int x = 0; x < this.width; x++) {
+        int cell = this.index(x, row);
+        if (x < this.width - 1) {
+          boundary[boundaryCount] = this.rightEdge(cell);
+          boundaryCount += 1;
+        }
+        boundary[boundaryCount] = this.bottomEdge(cell);
+        boundaryCount += 1;
+        // a strip of one row is all boundary, and the edge above it is the
+        // boundary row above's edge down
+        if (row > firstRows[s]) {
+          boundary[boundaryCount] = this.bottomEdge(cell - this.width);
+          boundaryCount += 1;
+        }
+      }
+    }
+    int[] sorted = this.sortByWeight(boundary, boundaryCount);
+    for (int i = 0; groups.groups > 1 && i < sorted.length; i++) {
+      if (groups.union(this.edgeFrom(sorted[i]), this.edgeTo(sorted[i]))) {
+        this.openEdge(sorted[i]);
+      }
+    }
+    return groups;
+  }
+
+  // the end of the rows strip s builds on its own: all of its rows for the
+  // last strip, all but its boundary row for the others
+  int innerEnd(int[] firstRows, int s) {
+    if (s == firstRows.length - 2) {
+      return firstRows[s + 1];
+    }
+    return firstRows[s + 1] - 1;
+  }
+
+  // EFFECT: knocks down up to the given number of random walls inside this
+  // grid, adding loops to a perfect maze
+  void braid(Random r, int count) {
+    for (int tries = 0; count > 0 && tries < 4 * this.weights.length; tries++) {
+      int e = r.nextInt(this.weights.length);
+      if (this.hasEdge(e) && !this.isOpen(e)) {
+        this.openEdge(e);
+        count -= 1;
+      }
+    }
+  }
+
+  // is there a passage (no wall) along the given edge?
+  boolean isOpen(int edge) {
+    int wall = ((edge & 1) == 0) ? RIGHT_WALL : BOTTOM_WALL;
+    return (this.cells[this.edgeFrom(edge)] & wall) == 0;
+  }
+
+  // EFFECT: knocks down the wall along the given edge
+  void openEdge(int edge) {
+    int wall = ((edge & 1) == 0) ? RIGHT_WALL : BOTTOM_WALL;
+    this.cells[this.edgeFrom(edge)] &= (byte) ~wall;
+  }
+
+  // does the given cell have a wall on its right?
+  boolean hasRightWall(int cell) {
+    return (this.cells[cell] & RIGHT_WALL) != 0;
+  }
+
+  // does the given cell have a wall on its bottom?
+  boolean hasBottomWall(int cell) {
+    return (this.cells[cell] & BOTTOM_WALL) != 0;
+  }
+
+  // has the given cell been visited?
+  boolean isVisited(int cell) {
+    return (this.cells[cell] & VISITED) != 0;
+  }
+
+  // EFFECT: marks the given cell as visited
+  void setVisited(int cell) {
+    this.cells[cell] |= VISITED;
+  }
+
+  // the color of the given cell
+  Color color(int cell) {
+    return PALETTE[this.colors[cell]];
+  }
+
+  // the parent of every cell in the tree of passages rooted at the given cell,
+  // the root being its own parent and cells not connected to it having -1
+  int[] treeParents(int root) {
+    int[] parent = new int[this.size()];
+    Arrays.fill(parent, -1);
+    parent[root] = root;
+    // breadth first, each cell joins the queue once
+    int[] queue = new int[this.size()];
+    int head = 0;
+    int tail = 0;
+    int[] neighbors = new int[4];
+    queue[tail] = root;
+    tail += 1;
+    while (head < tail) {
+      int cell = queue[head];
+      head += 1;
+      int n = this.openNeighbors(cell, neighbors);
+      for (int k = 0; k < n; k++) {
+        if (parent[neighbors[k]] == -1) {
+          parent[neighbors[k]] = cell;
+          queue[tail] = neighbors[k];
+          tail += 1;
+        }
+      }
+    }
+    return parent;
+  }
+
+  // EFFECT: writes the cells reachable in one step from the given cell into
+  // out (top, left, right then bottom, the same order as a Cell's outEdges),
+  // and returns how many there are (at most 4)
+  int openNeighbors(int cell, int[] out) {
+    int count = 0;
+    int x = this.xOf(cell);
+    int y = this.yOf(cell);
+    if (y > 0 && !this.hasBottomWall(cell - this.width)) {
+      out[count] = cell - this.width;
+      count += 1;
+    }
+    if (x > 0 && !this.hasRightWall(cell - 1)) {
+      out[count] = cell - 1;
+      count += 1;
+    }
+    if (x < this.width - 1 && !this.hasRightWall(cell)) {
+      out[count] = cell + 1;
+      count += 1;
+    }
+    if (y < this.height - 1 && !this.hasBottomWall(cell)) {
+      out[count] = cell + this.width;
+      count += 1;
+    }
+    return count;
+  }
+}
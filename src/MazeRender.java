@@ -0,0 +1,596 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+import java.awt.Color;
+import javalib.worldimages.*;
+
+// interface to represent ways of drawing the board of a maze that keep the
+// image between frames and only redraw the cells marked dirty
+interface IBoardRenderer {
+  // EFFECT: marks the cell at the given index to be redrawn in the next frame
+  void markDirty(int cell);
+
+  // EFFECT: marks every cell, and the walls, to be redrawn in the next frame
+  void markAllDirty();
+
+  // is anything waiting to be redrawn?
+  boolean isDirty();
+
+  // EFFECT: scrolls the view to keep the cell at the given coordinates in sight
+  // (renderers that show the whole board do nothing)
+  void follow(int x, int y);
+
+  // Draws the board of the given grid, redrawing only what changed since the
+  // last time it was drawn
+  WorldImage draw(MazeGrid grid);
+}
+
+// interface to represent renderers that can draw a window of a bigger board,
+// the window's cells being numbered from its own top left cell
+interface IWindowRenderer extends IBoardRenderer {
+  // EFFECT: shows the cells from the given board coordinates on, redrawing the
+  // whole window in the next frame
+  void moveTo(int left, int top);
+}
+
+// Class to represent the walls of a board, drawn once since they never change
+// until the maze is made again
+// - the wall pixels are kept in a BitSet, row by row
+// - the image is transparent everywhere but the walls, so it can be laid over
+//   a layer of cell colors
+class WallLayer {
+  // Width of the board, in cells
+  int width;
+  // Cell size for the board
+  int cellSize;
+  // Width and height of the board, in pixels
+  int pixelWidth;
+  int pixelHeight;
+  // which pixels are on a wall
+  BitSet pixels;
+  // the walls drawn into an image, made the first time it is asked for
+  ComputedPixelImage image;
+
+  // the walls of the window of the given grid that is width by height cells,
+  // starting from the cell at (windowLeft, windowTop)
+  WallLayer(MazeGrid grid, int windowLeft, int windowTop, int width, int height,
+      int cellSize) {
+    this.width = width;
+    this.cellSize = cellSize;
+    this.pixelWidth = width * cellSize;
+    this.pixelHeight = height * cellSize;
+    this.pixels = new BitSet(this.pixelWidth * this.pixelHeight);
+    for (int i = 0; i < width * height; i++) {
+      int cell = grid.index(windowLeft + (i % width), windowTop + (i / width));
+      int left = (i % width) * cellSize;
+      int top = (i / width) * cellSize;
+      // the same lines a cell's tile draws: its last column and last row
+      if (grid.hasRightWall(cell)) {
+        for (int y = top; y < top + cellSize; y++) {
+          this.pixels.set(y * this.pixelWidth + left + cellSize - 1);
+        }
+      }
+      if (grid.hasBottomWall(cell)) {
+        int row = (top + cellSize - 1) * this.pixelWidth;
+        this.pixels.set(row + left, row + left + cellSize);
+      }
+    }
+  }
+
+  // is the pixel at the given coordinates on a wall?
+  boolean isWall(int x, int y) {
+    return this.pixels.get(y * this.pixelWidth + x);
+  }
+
+  // the walls as an image the size of the board
+  // EFFECT: draws the image the first time it is asked for
+  WorldImage image() {
+    if (this.image == null) {
+      this.image = new ComputedPixelImage(this.pixelWidth, this.pixelHeight);
+      for (int p = this.pixels.nextSetBit(0); p >= 0; p = this.pixels.nextSetBit(p + 1)) {
+        this.image.setPixel(p % this.pixelWidth, p / this.pixelWidth, Color.black);
+      }
+    }
+    return this.image;
+  }
+}
+
+// Class to represent a board image that is kept between frames and only
+// rebuilt where cells changed
+// - the walls are drawn once into a WallLayer laid over the cell colors, so
+//   only the colors are ever rebuilt
+// - the colors are split into square blocks of BLOCK x BLOCK cells
+// - every cell's tile, every block, and every row of blocks is cached, and a
+//   dirty cell only rebuilds its tile, its block, its row of blocks and the
+//   board, instead of every cell
+// - NOTE: only building the image is limited to what changed, javalib still
+//   walks the whole tree of images to draw it, so every frame still costs time
+//   in the number of cells shown; mazes bigger than the test games are drawn by
+//   a RasterRenderer instead
+class BoardRenderer implements IWindowRenderer {
+  // width and height of a block, in cells
+  static final int BLOCK = 16;
+
+  // Width and height of the board, in cells
+  int width;
+  int height;
+  // the grid coordinates of the board's top left cell
+  int left;
+  int top;
+  // Cell size for the board
+  int cellSize;
+  // number of blocks across and down
+  int blocksWide;
+  int blocksHigh;
+
+  // the cached image of every cell, block and row of blocks, and the board
+  WorldImage[] tiles;
+  WorldImage[] blocks;
+  WorldImage[] blockRows;
+  WorldImage board;
+
+  // shared tiles for the cells
+  TileCache tileCache;
+  // the walls, drawn the first time the board is
+  WallLayer walls;
+
+  // the cells, blocks and rows of blocks changed since the last frame
+  BitSet dirtyCells;
+  BitSet dirtyBlocks;
+  BitSet dirtyBlockRows;
+
+  BoardRenderer(int width, int height, int cellSize, TileCache tileCache) {
+    this.tileCache = tileCache;
+    this.width = width;
+    this.height = height;
+    this.cellSize = cellSize;
+    this.blocksWide = (width + BLOCK - 1) / BLOCK;
+    this.blocksHigh = (height + BLOCK - 1) / BLOCK;
+    this.tiles = new WorldImage[width * height];
+    this.blocks = new WorldImage[this.blocksWide * this.blocksHigh];
+    this.blockRows = new WorldImage[this.blocksHigh];
+    this.dirtyCells = new BitSet(width * height);
+    this.dirtyBlocks = new BitSet(this.blocks.length);
+    this.dirtyBlockRows = new BitSet(this.blocksHigh);
+    this.markAllDirty();
+  }
+
+  // EFFECT: marks the cell at the given index to be redrawn in the next frame
+  public void markDirty(int cell) {
+    int bx = (cell % this.width) / BLOCK;
+    int by = (cell / this.width) / BLOCK;
+    this.dirtyCells.set(cell);
+    this.dirtyBlocks.set(by * this.blocksWide + bx);
+    this.dirtyBlockRows.set(by);
+    this.board = null;
+  }
+
+  // EFFECT: marks every cell, and the walls, to be redrawn in the next frame
+  public void markAllDirty() {
+    this.dirtyCells.set(0, this.tiles.length);
+    this.dirtyBlocks.set(0, this.blocks.length);
+    this.dirtyBlockRows.set(0, this.blockRows.length);
+    this.walls = null;
+    this.board = null;
+  }
+
+  // EFFECT: nothing, the whole board is always in view
+  public void follow(int x, int y) {
+    // the whole board is always in view
+  }
+
+  // EFFECT: draws the cells from the given grid coordinates on
+  public void moveTo(int left, int top) {
+    this.left = left;
+    this.top = top;
+    this.markAllDirty();
+  }
+
+  // is anything waiting to be redrawn?
+  public boolean isDirty() {
+    return this.board == null;
+  }
+
+  // Draws the board of the given grid, rebuilding only what changed since the
+  // last time it was drawn
+  public WorldImage draw(MazeGrid grid) {
+    if (this.board != null) {
+      return this.board;
+    }
+    if (this.walls == null) {
+      this.walls = new WallLayer(grid, this.left, this.top, this.width, this.height,
+          this.cellSize);
+    }
+    for (int i = this.dirtyCells.nextSetBit(0); i >= 0; i = this.dirtyCells.nextSetBit(i + 1)) {
+      int cell = grid.index(this.left + (i % this.width), this.top + (i / this.width));
+      this.tiles[i] = this.tileCache.square(grid.colors[cell]);
+    }
+    for (int b = this.dirtyBlocks.nextSetBit(0); b >= 0; b = this.dirtyBlocks.nextSetBit(b + 1)) {
+      this.blocks[b] = this.drawBlock(b % this.blocksWide, b / this.blocksWide);
+    }
+    for (int by = this.dirtyBlockRows.nextSetBit(0); by >= 0;
+        by = this.dirtyBlockRows.nextSetBit(by + 1)) {
+      // Accumulator: the row of blocks so far
+      WorldImage rowAcc = new EmptyImage();
+      for (int bx = 0; bx < this.blocksWide; bx++) {
+        rowAcc = new BesideImage(rowAcc, this.blocks[by * this.blocksWide + bx]);
+      }
+      this.blockRows[by] = rowAcc;
+    }
+    // Accumulator: the board image so far
+    WorldImage boardAcc = new EmptyImage();
+    for (int by = 0; by < this.blocksHigh; by++) {
+      boardAcc = new AboveImage(boardAcc, this.blockRows[by]);
+    }
+    this.board = new OverlayImage(this.walls.image(), boardAcc.movePinholeTo(Cell.ORIGIN));
+
+    this.dirtyCells.clear();
+    this.dirtyBlocks.clear();
+    this.dirtyBlockRows.clear();
+    return this.board;
+  }
+
+  // Draws the colors of the block at the given block coordinates from the
+  // cached cell tiles
+  WorldImage drawBlock(int bx, int by) {
+    // Accumulator: the block image so far
+    WorldImage blockAcc = new EmptyImage();
+    for (int y = by * BLOCK; y < Math.min(this.height, (by + 1) * BLOCK); y++) {
+      // Accumulator: the row image so far
+      WorldImage rowAcc = new EmptyImage();
+      for (int x = bx * BLOCK; x < Math.min(this.width, (bx + 1) * BLOCK); x++) {
+        rowAcc = new BesideImage(rowAcc, this.tiles[y * this.width + x]);
+      }
+      blockAcc = new AboveImage(blockAcc, rowAcc);
+    }
+    return blockAcc;
+  }
+}
+
+// Class to represent the tiles shared by the cells: the colors layer only
+// draws a cell as a square of its color, so every cell of the same color can
+// share one image
+// - the tiles are kept in an array indexed by the palette index of their
+//   color, so a lookup neither hashes nor boxes a key
+class TileCache {
+  // Cell size the tiles are drawn at
+  int cellSize;
+  // the tile of every palette color, or null if it isn't drawn yet
+  WorldImage[] tiles;
+
+  TileCache(int cellSize) {
+    if (cellSize < 1) {
+      throw new IllegalArgumentException("A tile must be at least one pixel across");
+    }
+    this.cellSize = cellSize;
+    this.tiles = new WorldImage[MazeGrid.PALETTE.length];
+  }
+
+  // the tile of a cell of the color with the given palette index, with no
+  // walls
+  // EFFECT: draws and keeps the tile the first time it is asked for
+  WorldImage square(byte color) {
+    if (this.tiles[color] == null) {
+      this.tiles[color] = new RectangleImage(this.cellSize, this.cellSize, OutlineMode.SOLID,
+          MazeGrid.PALETTE[color]).movePinholeTo(Cell.ORIGIN);
+    }
+    return this.tiles[color];
+  }
+
+  // how many tiles this cache holds
+  int size() {
+    int count = 0;
+    for (WorldImage tile : this.tiles) {
+      if (tile != null) {
+        count += 1;
+      }
+    }
+    return count;
+  }
+}
+
+// Class to represent a board drawn straight into a pixel image instead of a
+// tree of images, for mazes too big to compose cell by cell
+// - the board is one ComputedPixelImage kept for as long as the renderer, and
+//   handed to the scene every frame
+// - the walls are written once from a WallLayer, and a dirty cell repaints
+//   only the color pixels of its own square, with its palette Color
+class RasterRenderer implements IWindowRenderer {
+  // Width and height of the board, in cells
+  int width;
+  int height;
+  // the grid coordinates of the board's top left cell
+  int left;
+  int top;
+  // Cell size for the board
+  int cellSize;
+  // the board's pixels
+  ComputedPixelImage image;
+  // the walls, written the first time the board is drawn
+  WallLayer walls;
+  // the cells changed since the last frame
+  BitSet dirtyCells;
+
+  RasterRenderer(int width, int height, int cellSize) {
+    this.width = width;
+    this.height = height;
+    this.cellSize = cellSize;
+    this.image = new ComputedPixelImage(width * cellSize, height * cellSize);
+    this.dirtyCells = new BitSet(width * height);
+    this.markAllDirty();
+  }
+
+  // EFFECT: marks the cell at the given index to be redrawn in the next frame
+  public void markDirty(int cell) {
+    this.dirtyCells.set(cell);
+  }
+
+  // EFFECT: marks every cell, and the walls, to be redrawn in the next frame
+  public void markAllDirty() {
+    this.dirtyCells.set(0, this.width * this.height);
+    this.walls = null;
+  }
+
+  // EFFECT: nothing, the whole board is always in view
+  public void follow(int x, int y) {
+    // the whole board is always in view
+  }
+
+  // EFFECT: draws the cells from the given grid coordinates on
+  public void moveTo(int left, int top) {
+    this.left = left;
+    this.top = top;
+    this.markAllDirty();
+  }
+
+  // is anything waiting to be redrawn?
+  public boolean isDirty() {
+    return !this.dirtyCells.isEmpty();
+  }
+
+  // Draws the board of the given grid, repainting only the dirty cells' pixels
+  public WorldImage draw(MazeGrid grid) {
+    if (this.walls == null) {
+      this.walls = new WallLayer(grid, this.left, this.top, this.width, this.height,
+          this.cellSize);
+      BitSet wallPixels = this.walls.pixels;
+      int pixelWidth = this.walls.pixelWidth;
+      for (int p = wallPixels.nextSetBit(0); p >= 0; p = wallPixels.nextSetBit(p + 1)) {
+        this.image.setPixel(p % pixelWidth, p / pixelWidth, Color.black);
+      }
+    }
+    for (int i = this.dirtyCells.nextSetBit(0); i >= 0; i = this.dirtyCells.nextSetBit(i + 1)) {
+      this.paintCell(i,
+          grid.color(grid.index(this.left + (i % this.width), this.top + (i / this.width))));
+    }
+    this.dirtyCells.clear();
+    return this.image;
+  }
+
+  // EFFECT: writes the given color into the pixels of the cell at the given
+  // index that aren't on a wall
+  void paintCell(int cell, Color color) {
+    int left = (cell % this.width) * this.cellSize;
+    int top = (cell / this.width) * this.cellSize;
+    for (int y = top; y < top + this.cellSize; y++) {
+      for (int x = left; x < left + this.cellSize; x++) {
+        if (!this.walls.isWall(x, y)) {
+          this.image.setPixel(x, y, color);
+        }
+      }
+    }
+  }
+}
+
+// Class to represent a window onto a board too big for the screen, that only
+// draws the cells in view and scrolls to keep the player in sight
+// - the cells in view are drawn by another renderer the size of the window, so
+//   a frame costs the same no matter how big the board is
+// - the camera only moves when the player comes within a quarter of the window
+//   of its edge, and moving it redraws the whole window
+class ViewportRenderer implements IBoardRenderer {
+  // Width and height of the board, in cells
+  int width;
+  int height;
+  // Width and height of the window, in cells
+  int viewWidth;
+  int viewHeight;
+  // the board coordinates of the window's top left cell
+  int left;
+  int top;
+  // draws the cells in view
+  IWindowRenderer window;
+
+  ViewportRenderer(int width, int height, int viewWidth, int viewHeight,
+      IWindowRenderer window) {
+    this.width = width;
+    this.height = height;
+    this.viewWidth = viewWidth;
+    this.viewHeight = viewHeight;
+    this.window = window;
+  }
+
+  // is the cell at the given board coordinates in view?
+  boolean inView(int x, int y) {
+    return x >= this.left && x < this.left + this.viewWidth
+        && y >= this.top && y < this.top + this.viewHeight;
+  }
+
+  // EFFECT: marks the cell at the given index to be redrawn in the next frame,
+  // if it is in view
+  public void markDirty(int cell) {
+    int x = cell % this.width;
+    int y = cell / this.width;
+    if (this.inView(x, y)) {
+      this.window.markDirty((y - this.top) * this.viewWidth + (x - this.left));
+    }
+  }
+
+  // EFFECT: marks every cell, and the walls, to be redrawn in the next frame
+  public void markAllDirty() {
+    this.window.markAllDirty();
+  }
+
+  // is anything waiting to be redrawn?
+  public boolean isDirty() {
+    return this.window.isDirty();
+  }
+
+  // EFFECT: moves the window, if the cell at the given coordinates is too close
+  // to its edge, so the cell is at least a quarter of the window from the edge
+  // (or as close as the board's own edge allows)
+  public void follow(int x, int y) {
+    int newLeft = this.scroll(this.left, x, this.viewWidth, this.width);
+    int newTop = this.scroll(this.top, y, this.viewHeight, this.height);
+    if (newLeft != this.left || newTop != this.top) {
+      this.left = newLeft;
+      this.top = newTop;
+      this.window.moveTo(newLeft, newTop);
+    }
+  }
+
+  // where a window starting at the given position along one axis should start
+  // to keep the given position in sight
+  int scroll(int start, int at, int view, int board) {
+    int margin = view / 4;
+    if (at < start + margin) {
+      start = at - margin;
+    }
+    else if (at >= start + view - margin) {
+      start = at - view + margin + 1;
+    }
+    return Math.max(0, Math.min(board - view, start));
+  }
+
+  // Draws the cells in view, redrawing only what changed since the last time
+  // it was drawn
+  public WorldImage draw(MazeGrid grid) {
+    return this.window.draw(grid);
+  }
+}
+
+// Class to represent a zoomed out view of a whole board, where every square
+// block of cells is drawn as one square of a single color
+// - a block's color is the color of the most important cell in it, following
+//   the order of the given palette indices (so a block holding the player
+//   shows the player's color, then the answer path, and so on), or else the
+//   color of its first cell
+// - the walls are too small to see and aren't drawn
+// - every block's color is kept, and only blocks holding a dirty cell are
+//   summarized and drawn again
+class OverviewRenderer implements IBoardRenderer {
+  // Width and height of the board, in cells
+  int width;
+  int height;
+  // width and height of a block, in cells
+  int zoom;
+  // width and height of a block, in pixels
+  int blockPixels;
+  // number of blocks across and down
+  int blocksWide;
+  int blocksHigh;
+  // the palette indices of the colors that stand for a block, most important
+  // first
+  byte[] priority;
+  // the palette index of the color of every block, or -1 if it isn't drawn yet
+  byte[] summary;
+  // the blocks holding cells changed since the last frame
+  BitSet dirtyBlocks;
+  // the blocks drawn into an image
+  ComputedPixelImage image;
+
+  OverviewRenderer(int width, int height, int zoom, int blockPixels, byte[] priority) {
+    this.width = width;
+    this.height = height;
+    this.zoom = zoom;
+    this.blockPixels = blockPixels;
+    this.blocksWide = (width + zoom - 1) / zoom;
+    this.blocksHigh = (height + zoom - 1) / zoom;
+    this.priority = priority;
+    this.summary = new byte[this.blocksWide * this.blocksHigh];
+    this.dirtyBlocks = new BitSet(this.summary.length);
+    this.image = new ComputedPixelImage(this.blocksWide * blockPixels,
+        this.blocksHigh * blockPixels);
+    this.markAllDirty();
+  }
+
+  // EFFECT: marks the block of the cell at the given index to be redrawn in the
+  // next frame
+  public void markDirty(int cell) {
+    int bx = (cell % this.width) / this.zoom;
+    int by = (cell / this.width) / this.zoom;
+    this.dirtyBlocks.set(by * this.blocksWide + bx);
+  }
+
+  // EFFECT: marks every block to be redrawn in the next frame
+  public void markAllDirty() {
+    Arrays.fill(this.summary, (byte) -1);
+    this.dirtyBlocks.set(0, this.summary.length);
+  }
+
+  // is anything waiting to be redrawn?
+  public boolean isDirty() {
+    return !this.dirtyBlocks.isEmpty();
+  }
+
+  // EFFECT: nothing, the whole board is always in view
+  public void follow(int x, int y) {
+    // the whole board is always in view
+  }
+
+  // Draws the blocks of the given grid, summarizing and drawing again only the
+  // blocks holding cells that changed since the last time it was drawn
+  public WorldImage draw(MazeGrid grid) {
+    for (int b = this.dirtyBlocks.nextSetBit(0); b >= 0; b = this.dirtyBlocks.nextSetBit(b + 1)) {
+      byte color = this.summarize(b, grid);
+      if (color != this.summary[b]) {
+        this.summary[b] = color;
+        this.fillBlock(b, MazeGrid.PALETTE[color]);
+      }
+    }
+    this.dirtyBlocks.clear();
+    return this.image;
+  }
+
+  // the palette index of the color that stands for the block at the given index
+  byte summarize(int block, MazeGrid grid) {
+    int left = (block % this.blocksWide) * this.zoom;
+    int top = (block / this.blocksWide) * this.zoom;
+    byte best = grid.colors[top * this.width + left];
+    int bestRank = this.rank(best);
+    for (int y = top; y < Math.min(this.height, top + this.zoom) && bestRank > 0; y++) {
+      for (int x = left; x < Math.min(this.width, left + this.zoom); x++) {
+        byte color = grid.colors[y * this.width + x];
+        int rank = this.rank(color);
+        if (rank < bestRank) {
+          best = color;
+          bestRank = rank;
+        }
+      }
+    }
+    return best;
+  }
+
+  // how important the color with the given palette index is, 0 being the most
+  // important and colors that don't stand for a block being the least
+  int rank(byte color) {
+    for (int i = 0; i < this.priority.length; i++) {
+      if (this.priority[i] == color) {
+        return i;
+      }
+    }
+    return this.priority.length;
+  }
+
+  // EFFECT: fills the pixels of the block at the given index with the given
+  // color
+  void fillBlock(int block, Color color) {
+    int left = (block % this.blocksWide) * this.blockPixels;
+    int top = (block / this.blocksWide) * this.blockPixels;
+    for (int y = top; y < top + this.blockPixels; y++) {
+      for (int x = left; x < left + this.blockPixels; x++) {
+        this.image.setPixel(x, y, color);
+      }
+    }
+  }
+}
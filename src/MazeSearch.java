@@ -0,0 +1,744 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.stream.IntStream;
+
+// Class to represent the result of searching a maze from a start cell to a goal
+class SearchResult {
+  // indices of the cells searched, in the order they were searched
+  int[] order;
+  // indices of the cells on the path from the start to the goal, or empty if
+  // the goal wasn't reached
+  int[] path;
+
+  SearchResult(int[] order, int[] path) {
+    this.order = order;
+    this.path = path;
+  }
+}
+
+// Class to represent a dfs or bfs over the cell indices of a MazeGrid, that can
+// be run all at once or stepped one searched cell at a time
+// - visited cells are marked in a bitset
+// - the cell each cell was first reached from is kept in a parent array
+class GridSearch {
+  // the grid being searched
+  MazeGrid grid;
+  // cells already searched
+  BitSet alreadySeen;
+  // the cell each cell was first reached from, or -1
+  int[] parent;
+  // scratch space for a cell's neighbors
+  int[] neighbors;
+
+  // the current search: its start, goal and worklist
+  int start;
+  int end;
+  IIntCollection worklist;
+  // the next searched cell to hand out, or -1 if it hasn't been found yet
+  int pending;
+  // has the current search reached its goal?
+  boolean found;
+
+  GridSearch(MazeGrid grid, IIntCollection worklist) {
+    this.grid = grid;
+    this.alreadySeen = new BitSet(grid.size());
+    this.parent = new int[grid.size()];
+    this.neighbors = new int[4];
+    this.worklist = worklist;
+    this.pending = -1;
+  }
+
+  GridSearch(MazeGrid grid) {
+    this(grid, new IntQueue(0));
+  }
+
+  // EFFECT: starts a new search from start to end, in the order given by the
+  // worklist (a queue for bfs, a stack for dfs), without searching any cells yet
+  void start(int start, int end, IIntCollection worklist) {
+    this.alreadySeen.clear();
+    Arrays.fill(this.parent, -1);
+    this.start = start;
+    this.end = end;
+    this.worklist = worklist;
+    this.pending = -1;
+    this.found = false;
+    worklist.clear();
+    worklist.add(start);
+  }
+
+  // EFFECT: starts a new search from start to end, reusing the worklist of the
+  // last search
+  void start(int start, int end) {
+    this.start(start, end, this.worklist);
+  }
+
+  // are there more cells to search before the goal is reached?
+  // EFFECT: pops the worklist up to the next cell that hasn't been searched
+  boolean hasNext() {
+    while (this.pending == -1 && !this.found && !this.worklist.isEmpty()) {
+      int next = this.worklist.remove();
+
+      if (this.alreadySeen.get(next)) {
+        // do nothing
+      }
+      else if (next == this.end) {
+        this.found = true;
+      }
+      else {
+        this.pending = next;
+      }
+    }
+    return this.pending != -1;
+  }
+
+  // Searches one more cell and returns it
+  // EFFECT: marks the cell as searched and adds its neighbors to the worklist
+  int next() {
+    if (!this.hasNext()) {
+      throw new RuntimeException("No more cells to search");
+    }
+    int next = this.pending;
+    this.pending = -1;
+    this.alreadySeen.set(next);
+    int n = this.grid.openNeighbors(next, this.neighbors);
+    for (int k = 0; k < n; k++) {
+      int to = this.neighbors[k];
+      if (!this.alreadySeen.get(to)) {
+        // keep the first cell a neighbor was reached from
+        if (this.parent[to] == -1 && to != this.start) {
+          this.parent[to] = next;
+        }
+        this.worklist.add(to);
+      }
+    }
+    return next;
+  }
+
+  // Searches from start until end is reached, in the order given by the
+  // worklist (a queue for bfs, a stack for dfs)
+  SearchResult search(int start, int end, IIntCollection worklist) {
+    this.start(start, end, worklist);
+    int[] order = new int[this.grid.size()];
+    int seenCount = 0;
+    while (this.hasNext()) {
+      order[seenCount] = this.next();
+      seenCount += 1;
+    }
+
+    int[] path = new int[0];
+    if (this.found) {
+      path = this.pathTo(start, end);
+    }
+    return new SearchResult(Arrays.copyOf(order, seenCount), path);
+  }
+
+  // the cells from start to end, following the parents back from end
+  int[] pathTo(int start, int end) {
+    int length = 1;
+    for (int step = end; step != start; step = this.parent[step]) {
+      length += 1;
+    }
+    int[] path = new int[length];
+    int step = end;
+    for (int i = length - 1; i >= 0; i--) {
+      path[i] = step;
+      step = this.parent[step];
+    }
+    return path;
+  }
+}
+
+// Class to represent shortest paths over the passages of a MazeGrid, weighted by
+// the grid's edge weights, that stay correct when the maze has loops
+// - Dial's algorithm: since every weight is less than MAX_WEIGHT (which
+//   MazeGrid.setWeight enforces), the cells
+//   waiting to be settled are at most MAX_WEIGHT - 1 apart in distance, so a
+//   circular array of MAX_WEIGHT buckets, one per distance, replaces a heap
+// - each bucket is a doubly linked list threaded through next/prev arrays, so
+//   a cell whose distance shrinks moves between buckets in constant time
+class DialSearch {
+  // the grid being searched
+  MazeGrid grid;
+  // distance of every cell from the start, Integer.MAX_VALUE if not reached
+  int[] dist;
+  // the cell each cell is reached from on its shortest path, or -1
+  int[] parent;
+  // first cell in every bucket, or -1
+  int[] bucketHead;
+  // the cells after and before every cell in its bucket, or -1
+  int[] next;
+  int[] prev;
+  // cells waiting in a bucket
+  BitSet queued;
+  // scratch space for a cell's neighbors
+  int[] neighbors;
+
+  DialSearch(MazeGrid grid) {
+    this.grid = grid;
+    this.dist = new int[grid.size()];
+    this.parent = new int[grid.size()];
+    this.bucketHead = new int[MazeGrid.MAX_WEIGHT];
+    this.next = new int[grid.size()];
+    this.prev = new int[grid.size()];
+    this.queued = new BitSet(grid.size());
+    this.neighbors = new int[4];
+  }
+
+  // Finds the shortest path from start to end, returning the cells settled
+  // (in order of distance) and the path
+  SearchResult search(int start, int end) {
+    Arrays.fill(this.dist, Integer.MAX_VALUE);
+    Arrays.fill(this.parent, -1);
+    Arrays.fill(this.bucketHead, -1);
+    this.queued.clear();
+    int[] order = new int[this.grid.size()];
+    int settledCount = 0;
+    boolean found = false;
+
+    this.dist[start] = 0;
+    this.addToBucket(start);
+    // the distance of the bucket being emptied
+    int current = 0;
+    while (!this.queued.isEmpty()) {
+      while (this.bucketHead[current % MazeGrid.MAX_WEIGHT] == -1) {
+        current += 1;
+      }
+      int cell = this.bucketHead[current % MazeGrid.MAX_WEIGHT];
+      this.removeFromBucket(cell);
+      order[settledCount] = cell;
+      settledCount += 1;
+      if (cell == end) {
+        found = true;
+        break;
+      }
+
+      int n = this.grid.openNeighbors(cell, this.neighbors);
+      for (int k = 0; k < n; k++) {
+        int to = this.neighbors[k];
+        int d = this.dist[cell] + this.grid.weights[this.grid.edgeBetween(cell, to)];
+        if (d < this.dist[to]) {
+          if (this.queued.get(to)) {
+            this.removeFromBucket(to);
+          }
+          this.dist[to] = d;
+          this.parent[to] = cell;
+          this.addToBucket(to);
+        }
+      }
+    }
+
+    int[] path = new int[0];
+    if (found) {
+      int length = 1;
+      for (int step = end; step != start; step = this.parent[step]) {
+        length += 1;
+      }
+      path = new int[length];
+      int step = end;
+      for (int i = length - 1; i >= 0; i--) {
+        path[i] = step;
+        step = this.parent[step];
+      }
+    }
+    return new SearchResult(Arrays.copyOf(order, settledCount), path);
+  }
+
+  // EFFECT: puts the given cell at the head of the bucket for its distance
+  void addToBucket(int cell) {
+    int b = this.dist[cell] % MazeGrid.MAX_WEIGHT;
+    this.next[cell] = this.bucketHead[b];
+    this.prev[cell] = -1;
+    if (this.bucketHead[b] != -1) {
+      this.prev[this.bucketHead[b]] = cell;
+    }
+    this.bucketHead[b] = cell;
+    this.queued.set(cell);
+  }
+
+  // EFFECT: unlinks the given cell from the bucket for its distance
+  void removeFromBucket(int cell) {
+    int b = this.dist[cell] % MazeGrid.MAX_WEIGHT;
+    if (this.prev[cell] == -1) {
+      this.bucketHead[b] = this.next[cell];
+    }
+    else {
+      this.next[this.prev[cell]] = this.next[cell];
+    }
+    if (this.next[cell] != -1) {
+      this.prev[this.next[cell]] = this.prev[cell];
+    }
+    this.queued.clear(cell);
+  }
+}
+
+// Class to represent an A* search over the passages of a MazeGrid, counting
+// every step as 1 and guided towards the goal by the Manhattan distance between
+// grid coordinates
+// - the open cells wait in an IntHeap keyed by (steps + estimate), ties going to
+//   the cell with the smaller estimate
+// - reached and closed cells are marked in bitsets
+class AStarSearch {
+  // the grid being searched
+  MazeGrid grid;
+  // cells waiting to be expanded
+  IntHeap open;
+  // cells already expanded
+  BitSet closed;
+  // cells whose steps are known
+  BitSet reached;
+  // steps from the start to every reached cell
+  int[] steps;
+  // the cell each reached cell was reached from
+  int[] parent;
+  // scratch space for a cell's neighbors
+  int[] neighbors;
+
+  AStarSearch(MazeGrid grid) {
+    this.grid = grid;
+    this.open = new IntHeap(grid.size());
+    this.closed = new BitSet(grid.size());
+    this.reached = new BitSet(grid.size());
+    this.steps = new int[grid.size()];
+    this.parent = new int[grid.size()];
+    this.neighbors = new int[4];
+  }
+
+  // the Manhattan distance between the two given cells, which never overestimates
+  // the steps between them
+  int estimate(int from, int to) {
+    return Math.abs(this.grid.xOf(from) - this.grid.xOf(to))
+        + Math.abs(this.grid.yOf(from) - this.grid.yOf(to));
+  }
+
+  // the heap key of the given cell: its total estimate, then its own estimate
+  long key(int cell, int end) {
+    int h = this.estimate(cell, end);
+    return ((long) (this.steps[cell] + h) << 32) | h;
+  }
+
+  // Finds a shortest path from start to end, returning the cells expanded (in
+  // order) and the path
+  SearchResult search(int start, int end) {
+    this.open.clear();
+    this.closed.clear();
+    this.reached.clear();
+    int[] order = new int[this.grid.size()];
+    int expanded = 0;
+    boolean found = false;
+
+    this.steps[start] = 0;
+    this.parent[start] = start;
+    this.reached.set(start);
+    this.open.add(start, this.key(start, end));
+    while (!this.open.isEmpty()) {
+      int cell = this.open.remove();
+      this.closed.set(cell);
+      order[expanded] = cell;
+      expanded += 1;
+      if (cell == end) {
+        found = true;
+        break;
+      }
+
+      int n = this.grid.openNeighbors(cell, this.neighbors);
+      for (int k = 0; k < n; k++) {
+        int to = this.neighbors[k];
+        if (!this.closed.get(to)
+            && (!this.reached.get(to) || this.steps[cell] + 1 < this.steps[to])) {
+          this.reached.set(to);
+          this.steps[to] = this.steps[cell] + 1;
+          this.parent[to] = cell;
+          this.open.add(to, this.key(to, end));
+        }
+      }
+    }
+
+    int[] path = new int[0];
+    if (found) {
+      path = new int[this.steps[end] + 1];
+      int step = end;
+      for (int i = path.length - 1; i >= 0; i--) {
+        path[i] = step;
+        step = this.parent[step];
+      }
+    }
+    return new SearchResult(Arrays.copyOf(order, expanded), path);
+  }
+}
+
+// Class to represent the result of a search from both ends, which also knows
+// the cell where the two searches met
+class MeetingResult extends SearchResult {
+  // the cell both searches reached, or -1 if they never met
+  int meeting;
+
+  MeetingResult(int[] order, int[] path, int meeting) {
+    super(order, path);
+    this.meeting = meeting;
+  }
+}
+
+// Class to represent a bfs over the passages of a MazeGrid grown from both the
+// start and the goal at once, a whole level at a time from whichever side has
+// the smaller frontier, until the two meet
+// - one search is kept for a maze and run again for every query, and a query
+//   only touches the cells it reaches: the distances are filled with -1 once,
+//   and each search puts back only the cells the last one reached
+class BidirectionalSearch {
+  // the grid being searched
+  MazeGrid grid;
+  // steps from the start and from the goal to every cell, or -1 if not reached
+  int[] distFromStart;
+  int[] distFromEnd;
+  // the cell each cell was reached from, on each side
+  int[] parentFromStart;
+  int[] parentFromEnd;
+  // the cells reached but not expanded yet, on each side
+  IntQueue frontierFromStart;
+  IntQueue frontierFromEnd;
+  // scratch space for a cell's neighbors
+  int[] neighbors;
+
+  // the cells expanded so far and how many there are (grown as needed, so it
+  // is only as big as the most cells a search expanded)
+  int[] order;
+  int expanded;
+  // the best meeting cell found so far and the length of its path
+  int meeting;
+  int meetingLength;
+
+  BidirectionalSearch(MazeGrid grid) {
+    this.grid = grid;
+    this.distFromStart = new int[grid.size()];
+    this.distFromEnd = new int[grid.size()];
+    this.parentFromStart = new int[grid.size()];
+    this.parentFromEnd = new int[grid.size()];
+    this.frontierFromStart = new IntQueue();
+    this.frontierFromEnd = new IntQueue();
+    this.neighbors = new int[4];
+    this.order = new int[16];
+    Arrays.fill(this.distFromStart, -1);
+    Arrays.fill(this.distFromEnd, -1);
+  }
+
+  // Finds a shortest path from start to end, returning the cells expanded, the
+  // path and the cell where the two searches met
+  MeetingResult search(int start, int end) {
+    this.forgetLastSearch();
+    this.expanded = 0;
+    this.meeting = -1;
+    this.meetingLength = Integer.MAX_VALUE;
+
+    this.distFromStart[start] = 0;
+    this.parentFromStart[start] = start;
+    this.frontierFromStart.add(start);
+    this.distFromEnd[end] = 0;
+    this.parentFromEnd[end] = end;
+    this.frontierFromEnd.add(end);
+    if (start == end) {
+      this.meeting = start;
+    }
+
+    while (this.meeting == -1 && !this.frontierFromStart.isEmpty()
+        && !this.frontierFromEnd.isEmpty()) {
+      if (this.frontierFromStart.size() <= this.frontierFromEnd.size()) {
+        this.expandLevel(this.frontierFromStart, this.distFromStart, this.parentFromStart,
+            this.distFromEnd);
+      }
+      else {
+        this.expandLevel(this.frontierFromEnd, this.distFromEnd, this.parentFromEnd,
+            this.distFromStart);
+      }
+    }
+
+    int[] path = new int[0];
+    if (this.meeting != -1) {
+      path = this.pathThrough(this.meeting);
+    }
+    return new MeetingResult(Arrays.copyOf(this.order, this.expanded), path, this.meeting);
+  }
+
+  // EFFECT: marks every cell the last search reached as not reached again: a
+  // reached cell was either expanded or is still waiting in a frontier
+  void forgetLastSearch() {
+    for (int i = 0; i < this.expanded; i++) {
+      this.forget(this.order[i]);
+    }
+    while (!this.frontierFromStart.isEmpty()) {
+      this.forget(this.frontierFromStart.remove());
+    }
+    while (!this.frontierFromEnd.isEmpty()) {
+      this.forget(this.frontierFromEnd.remove());
+    }
+  }
+
+  // EFFECT: marks the given cell as not reached from either side
+  void forget(int cell) {
+    this.distFromStart[cell] = -1;
+    this.distFromEnd[cell] = -1;
+  }
+
+  // EFFECT: expands every cell in one level of the given side's frontier, and
+  // keeps the meeting cell with the shortest path through it seen so far
+  void expandLevel(IntQueue frontier, int[] dist, int[] parent, int[] otherDist) {
+    for (int levelSize = frontier.size(); levelSize > 0; levelSize--) {
+      int cell = frontier.remove();
+      if (this.expanded == this.order.length) {
+        this.order = Arrays.copyOf(this.order, 2 * this.order.length);
+      }
+      this.order[this.expanded] = cell;
+      this.expanded += 1;
+      int n = this.grid.openNeighbors(cell, this.neighbors);
+      for (int k = 0; k < n; k++) {
+        int to = this.neighbors[k];
+        if (dist[to] == -1) {
+          dist[to] = dist[cell] + 1;
+          parent[to] = cell;
+          frontier.add(to);
+        }
+        if (otherDist[to] != -1 && dist[to] + otherDist[to] < this.meetingLength) {
+          this.meeting = to;
+          this.meetingLength = dist[to] + otherDist[to];
+        }
+      }
+    }
+  }
+
+  // the cells from the start to the goal through the given meeting cell
+  int[] pathThrough(int meeting) {
+    int[] path = new int[this.distFromStart[meeting] + this.distFromEnd[meeting] + 1];
+    int step = meeting;
+    for (int i = this.distFromStart[meeting]; i >= 0; i--) {
+      path[i] = step;
+      step = this.parentFromStart[step];
+    }
+    step = meeting;
+    for (int i = this.distFromStart[meeting]; i < path.length; i++) {
+      path[i] = step;
+      step = this.parentFromEnd[step];
+    }
+    return path;
+  }
+}
+
+// Class to represent a path query: which cells, with which algorithm, on which
+// generation of a maze
+class PathQuery {
+  // the generation of the maze the query was asked on
+  int generation;
+  int start;
+  int goal;
+  // the name of the algorithm answering the query
+  String algorithm;
+
+  PathQuery(int generation, int start, int goal, String algorithm) {
+    this.generation = generation;
+    this.start = start;
+    this.goal = goal;
+    this.algorithm = algorithm;
+  }
+
+  // is the given object the same query as this one?
+  public boolean equals(Object other) {
+    if (!(other instanceof PathQuery)) {
+      return false;
+    }
+    PathQuery that = (PathQuery) other;
+    return this.generation == that.generation && this.start == that.start
+        && this.goal == that.goal && this.algorithm.equals(that.algorithm);
+  }
+
+  // the hash code of this query, consistent with equals
+  public int hashCode() {
+    return ((this.generation * 31 + this.start) * 31 + this.goal) * 31
+        + this.algorithm.hashCode();
+  }
+}
+
+// Class to represent the answers to the most recently used path queries, up to a
+// capacity, dropping the least recently used one when it is full
+class PathCache<T> {
+  // the most answers this cache keeps
+  int capacity;
+  // the answers, in order from least to most recently used
+  LinkedHashMap<PathQuery, T> answers;
+
+  PathCache(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("A cache must hold at least one answer");
+    }
+    this.capacity = capacity;
+    this.answers = new LinkedHashMap<PathQuery, T>(16, 0.75f, true);
+  }
+
+  // the answer to the given query, or null if it isn't in this cache
+  // EFFECT: marks the answer as the most recently used
+  T get(PathQuery query) {
+    return this.answers.get(query);
+  }
+
+  // EFFECT: remembers the answer to the given query, dropping the least
+  // recently used answer if this cache is full
+  void put(PathQuery query, T answer) {
+    this.answers.put(query, answer);
+    if (this.answers.size() > this.capacity) {
+      this.answers.remove(this.answers.keySet().iterator().next());
+    }
+  }
+
+  // EFFECT: forgets every answer
+  void clear() {
+    this.answers.clear();
+  }
+
+  // how many answers this cache holds
+  int size() {
+    return this.answers.size();
+  }
+}
+
+// Class to represent an index over the spanning tree of a maze that answers
+// distance queries between any two cells in constant time
+// - the cells are numbered in depth first (preorder) order, a compact Euler
+//   tour of the tree
+// - for cells u and v with u earlier, their lowest common ancestor is the parent
+//   of the shallowest cell numbered in (order of u, order of v], found with a
+//   sparse table of range minimums
+class LcaIndex {
+  // the parent of every cell, the root being its own parent
+  int[] parent;
+  // the number of edges from every cell up to the root
+  int[] depth;
+  // the position of every cell in the preorder
+  int[] order;
+  // levels[k][i] is the shallowest cell at positions [i, i + 2^k) of the
+  // preorder
+  int[][] levels;
+
+  // builds the index of the tree given by the parent of every cell, as from
+  // MazeGrid.treeParents
+  LcaIndex(int[] parent) {
+    int n = parent.length;
+    this.parent = parent;
+    this.depth = new int[n];
+    this.order = new int[n];
+
+    // the children of every cell, packed: the children of c are
+    // children[childStart[c]] up to children[childStart[c + 1]]
+    int[] childStart = new int[n + 1];
+    int root = -1;
+    for (int c = 0; c < n; c++) {
+      if (parent[c] == -1) {
+        throw new IllegalArgumentException("Every cell must be connected to the root");
+      }
+      if (parent[c] == c) {
+        root = c;
+      }
+      else {
+        childStart[parent[c] + 1] += 1;
+      }
+    }
+    for (int c = 0; c < n; c++) {
+      childStart[c + 1] += childStart[c];
+    }
+    int[] children = new int[Math.max(0, n - 1)];
+    int[] filled = Arrays.copyOf(childStart, n);
+    for (int c = 0; c < n; c++) {
+      if (parent[c] != c) {
+        children[filled[parent[c]]] = c;
+        filled[parent[c]] += 1;
+      }
+    }
+
+    // number the cells in preorder, with an explicit stack
+    int[] preorder = new int[n];
+    int[] stack = new int[n];
+    int top = 0;
+    int numbered = 0;
+    stack[top] = root;
+    top += 1;
+    while (top > 0) {
+      top -= 1;
+      int cell = stack[top];
+      this.order[cell] = numbered;
+      preorder[numbered] = cell;
+      numbered += 1;
+      for (int k = childStart[cell]; k < childStart[cell + 1]; k++) {
+        this.depth[children[k]] = this.depth[cell] + 1;
+        stack[top] = children[k];
+        top += 1;
+      }
+    }
+
+    // level 0 is the preorder itself, each next level covers twice the range
+    int levelCount = 1;
+    while ((1 << levelCount) <= n) {
+      levelCount += 1;
+    }
+    this.levels = new int[levelCount][];
+    this.levels[0] = preorder;
+    for (int k = 1; k < levelCount; k++) {
+      int half = 1 << (k - 1);
+      int[] below = this.levels[k - 1];
+      int[] level = new int[n - (1 << k) + 1];
+      for (int i = 0; i < level.length; i++) {
+        level[i] = this.shallower(below[i], below[i + half]);
+      }
+      this.levels[k] = level;
+    }
+  }
+
+  // the shallower of the two given cells
+  int shallower(int a, int b) {
+    if (this.depth[a] <= this.depth[b]) {
+      return a;
+    }
+    return b;
+  }
+
+  // the lowest common ancestor of the two given cells
+  int lca(int a, int b) {
+    if (a == b) {
+      return a;
+    }
+    int low = Math.min(this.order[a], this.order[b]) + 1;
+    int high = Math.max(this.order[a], this.order[b]);
+    int k = 31 - Integer.numberOfLeadingZeros(high - low + 1);
+    return this.parent[this.shallower(this.levels[k][low], this.levels[k][high - (1 << k) + 1])];
+  }
+
+  // the number of steps between the two given cells, in constant time
+  int distance(int a, int b) {
+    return this.depth[a] + this.depth[b] - 2 * this.depth[this.lca(a, b)];
+  }
+
+  // the cells on the path from a to b, in time proportional to its length
+  int[] path(int a, int b) {
+    int meet = this.lca(a, b);
+    int[] path = new int[this.distance(a, b) + 1];
+    int i = 0;
+    for (int step = a; step != meet; step = this.parent[step]) {
+      path[i] = step;
+      i += 1;
+    }
+    path[i] = meet;
+    i = path.length - 1;
+    for (int step = b; step != meet; step = this.parent[step]) {
+      path[i] = step;
+      i -= 1;
+    }
+    return path;
+  }
+
+  // the distance between every from[i] and to[i], answered in parallel
+  int[] distances(int[] from, int[] to) {
+    if (from.length != to.length) {
+      throw new IllegalArgumentException("Every query needs a from and a to cell");
+    }
+    int[] result = new int[from.length];
+    IntStream.range(0, from.length).parallel()
+        .forEach(i -> result[i] = this.distance(from[i], to[i]));
+    return result;
+  }
+}
@@ -0,0 +1,70 @@
+// Class to represent disjoint groups of the cell indices [0, n), for krusgal's
+// algorithm
+// - find uses path halving, so chains flatten as they are walked
+// - union links the shorter tree under the taller one (union by rank)
+class UnionFind {
+  // the parent of every index, an index is a representative if it is its own
+  // parent
+  int[] parent;
+  // an upper bound on the height of the tree under every representative
+  byte[] rank;
+  // the number of disjoint groups left
+  int groups;
+
+  UnionFind(int n) {
+    this.parent = new int[n];
+    this.rank = new byte[n];
+    this.groups = n;
+    for (int i = 0; i < n; i++) {
+      this.parent[i] = i;
+    }
+  }
+
+  // the representative of the group the given index is in
+  // EFFECT: points every other node on the way up to its grandparent
+  int find(int i) {
+    while (this.parent[i] != i) {
+      this.parent[i] = this.parent[this.parent[i]];
+      i = this.parent[i];
+    }
+    return i;
+  }
+
+  // are the two given indices in the same group?
+  boolean sameGroup(int a, int b) {
+    return this.find(a) == this.find(b);
+  }
+
+  // EFFECT: merges the groups of the two given indices
+  // returns false if they were already in the same group
+  boolean union(int a, int b) {
+    int rootA = this.find(a);
+    int rootB = this.find(b);
+    if (rootA == rootB) {
+      return false;
+    }
+    if (this.rank[rootA] < this.rank[rootB]) {
+      this.parent[rootA] = rootB;
+    }
+    else if (this.rank[rootA] > this.rank[rootB]) {
+      this.parent[rootB] = rootA;
+    }
+    else {
+      this.parent[rootB] = rootA;
+      this.rank[rootA] += 1;
+    }
+    this.groups -= 1;
+    return true;
+  }
+
+  // EFFECT: takes on the groups of the given union find over the indices
+  // [offset, offset + part's size), which must each still be in a group of
+  // their own here
+  void absorb(UnionFind part, int offset) {
+    for (int i = 0; i < part.parent.length; i++) {
+      this.parent[offset + i] = offset + part.parent[i];
+      this.rank[offset + i] = part.rank[i];
+    }
+    this.groups -= part.parent.length - part.groups;
+  }
+}
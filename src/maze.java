@@ -1,6 +1,5 @@
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Random;
 
@@ -16,6 +15,8 @@ import javalib.worldimages.*;
  * - press a to see the answer path in orange
  * - press b to show the breadth first search in blue gray
  * - press d to show the depth first search in blue gray
+ * - press l to knock down some walls, adding loops to the maze
+ * - press s to see the lightest path by edge weight in orange
  * - as long as the maze isn't solved, press r to restart a new maze
  * !!GOOD LUCK!!
  */
@@ -31,39 +32,62 @@ import javalib.worldimages.*;
 
 // Class to represent the users game play
 class User {
-  // Users current cell
-  Cell current;
-  // List of cells the user visited
-  ArrayList<Cell> visited;
+  // index of the users current cell, or -1 before they are in a maze
+  int current;
+  // indices of the cells the user visited, in the order they were first visited
+  // (which cells are visited is kept in the maze's grid, this is only the log)
+  int[] trail;
+  // how many cells are in the trail
+  int trailLength;
+  // indices of the cells the user left or entered since the maze last
+  // recolored them
+  IntQueue changed;
 
   // General constructor
-  User(Cell current, ArrayList<Cell> visited) {
+  User(int current) {
     this.current = current;
-    this.visited = visited;
+    this.trail = new int[16];
+    this.trailLength = 0;
+    this.changed = new IntQueue();
   }
 
   // Convenience Constructor
   User() {
-    this.current = null;
-    this.visited = new ArrayList<Cell>();
+    this(-1);
   }
 
-  // EFFECT: update the current position of this user given a cell
-  // EFFECT: update the given cell to be visited
-  void updateCurrent(Cell newCurrent) {
-    // if the current position is not in visited, add it
-    if (!this.visited.contains(this.current)) {
-      this.visited.add(this.current);
-    }
-    // add the new position to visited and mutate current position
-    this.visited.add(0, newCurrent);
+  // EFFECT: update the current position of this user given a cell index
+  // EFFECT: adds the cell left and the cell entered to the changed cells
+  void updateCurrent(int newCurrent) {
+    this.changed(this.current);
+    this.changed(newCurrent);
     this.current = newCurrent;
-    newCurrent.isVisted = true;
+  }
+
+  // EFFECT: adds the given cell to the changed cells, if it is in a maze
+  void changed(int cell) {
+    if (cell >= 0) {
+      this.changed.add(cell);
+    }
+  }
+
+  // EFFECT: adds the given cell to the end of the trail, the maze calls this
+  // the first time the user visits it
+  void logVisit(int cell) {
+    if (this.trailLength == this.trail.length) {
+      this.trail = Arrays.copyOf(this.trail, this.trail.length * 2);
+    }
+    this.trail[this.trailLength] = cell;
+    this.trailLength += 1;
   }
 }
 
 // Class to represent the cells in our game 
 class Cell {
+  // the pinhole every cell and board image is moved to, shared instead of made
+  // for every image
+  static final Posn ORIGIN = new Posn(0, 0);
+
   // In logical coordinates, with the origin at the top-left corner of the screen
   int x;
   int y;
@@ -115,18 +139,18 @@ class Cell {
     // if the right edge is blocked, add a wall image
     if (this.rightWall) {
       result = new OverlayOffsetImage(rightWallImg, (cellSize * -0.5) + 1, 0, result)
-          .movePinholeTo(new Posn(0, 0));
+          .movePinholeTo(Cell.ORIGIN);
 
     }
 
     // if the bottom edge is blocked, add a wall image
     if (this.bottomWall) {
       result = new OverlayOffsetImage(bottomWallImg, 0, (cellSize * -0.5) + 1, result)
-          .movePinholeTo(new Posn(0, 0));
+          .movePinholeTo(Cell.ORIGIN);
 
     }
 
-    return result.movePinholeTo(new Posn(0, 0));
+    return result.movePinholeTo(Cell.ORIGIN);
   }
 }
 
@@ -151,8 +175,9 @@ class Edge {
 
 // Class to represent our game world 
 class Maze extends World {
-  // list of cells
-  ArrayList<Cell> cells;
+  // compact grid holding the walls, colors, visited marks and edge weights of
+  // this maze
+  MazeGrid grid;
   // Width of game
   int width;
   // Height of game
@@ -160,24 +185,61 @@ class Maze extends World {
   // Cell size for the maze
   int cellSize;
 
-  // Colors for this game
-  Color trailColor = new Color(255, 153, 153);
-  Color currentColor = new Color(255, 51, 51);
+  // the most cells across and down that fit on the screen, bigger mazes are
+  // shown through a window that follows the player
+  static final int VIEW_WIDTH = 100;
+  static final int VIEW_HEIGHT = 60;
+  // mazes with at least this many cells are built in strips, in parallel
+  static final int PARALLEL_CELLS = 1 << 18;
 
-  // HashMap used for union find algorithm
-  HashMap<Cell, Cell> ufMap;
-  // spanning tree produced by union find/krusgal's algorithm
-  ArrayList<Edge> ufTree;
   // to represent the player
   User user;
-  // to represent the right and bottom edges connecting the cells in this maze
-  ArrayList<Edge> edges;
-  // path for the answer
-  ArrayList<Cell> answerPath;
-
-  // ArrayList representing the search path for DFS and BFS, respectively
-  ArrayList<Cell> dfsPath;
-  ArrayList<Cell> bfsPath;
+  // path for the answer, as cell indices
+  int[] answerPath;
+  // reusable dfs/bfs over the grid, made the first time it is needed
+  GridSearch searcher;
+  // the bfs from both ends answering every path query but the goal's, made
+  // once per maze
+  BidirectionalSearch meetingSearch;
+  // the spanning tree rooted at the goal: the parent index of every cell, the
+  // goal being its own parent (built with the maze, before any loops)
+  int[] treeParent;
+  int treeRoot;
+  // how many cells of the answer path have been animated so far
+  int answerStep;
+  // indices of the cells the animations painted since the last tick, whose
+  // colors may need to be put back
+  IntQueue changed;
+  // how many times this maze has been generated, so answers from an older maze
+  // are never reused
+  int generation;
+  // the paths already found in this generation of the maze
+  PathCache<int[]> pathCache;
+  // distance index over the spanning tree, built the first time it is needed
+  LcaIndex lcaIndex;
+  // the board image kept between frames
+  IBoardRenderer renderer;
+  // the last scene drawn, shown again while nothing changes, and the board
+  // image in it
+  WorldScene lastScene;
+  WorldImage lastBoard;
+  // the WorldEnd while the game goes on, and the scene it was made for
+  WorldEnd playing;
+  WorldScene playingScene;
+  // what each key does, looked up instead of comparing the key to every name
+  HashMap<String, Runnable> keyActions;
+  // draw the board straight into pixels instead of composing cell images?
+  boolean rasterMode;
+  // show the whole maze zoomed out, a block of cells to a square?
+  boolean overview;
+  // how many strips of rows the spanning tree is built in at once
+  int strips;
+  // tiles shared by every cell of the same color, kept across restarts
+  TileCache tileCache;
+
+  // the DFS and BFS being animated, respectively, stepped one cell per tick
+  GridSearch dfsSearch;
+  GridSearch bfsSearch;
 
   // booleans representing whether the user wants to see the search paths for
   // DFS and BFS, respectively
@@ -200,372 +262,439 @@ class Maze extends World {
       this.cellSize = 13;
     }
 
+    // mazes bigger than the biggest test game are drawn straight into pixels
+    this.rasterMode = this.width * this.height > VIEW_WIDTH * VIEW_HEIGHT;
+    // big mazes build a strip of rows on every processor
+    if (this.width * this.height >= PARALLEL_CELLS) {
+      this.strips = Runtime.getRuntime().availableProcessors();
+    }
+    else {
+      this.strips = 1;
+    }
+
     // initialize the maze attributes and build the game
     this.initMaze();
 
     // initialize the player to the start cell of the maze
     this.initPlayer();
+
+    this.keyActions = this.makeKeyActions();
+  }
+
+  // the action for every key this game handles, made once so handling a key
+  // makes nothing new
+  HashMap<String, Runnable> makeKeyActions() {
+    HashMap<String, Runnable> actions = new HashMap<String, Runnable>();
+    actions.put("a", this::showAnswer);
+    actions.put("b", this::showBreadthFirst);
+    actions.put("d", this::showDepthFirst);
+    actions.put("r", () -> {
+      this.initMaze();
+      this.initPlayer();
+    });
+    actions.put("l", this::braid);
+    actions.put("s", this::showShortest);
+    actions.put("z", this::toggleOverview);
+    actions.put("up", () -> this.step(0, -1));
+    actions.put("down", () -> this.step(0, 1));
+    actions.put("right", () -> this.step(1, 0));
+    actions.put("left", () -> this.step(-1, 0));
+    return actions;
   }
 
   // reset/initialize the maze attributes and build the game
   void initMaze() {
-    // for resetting purposes, making everything empty again
-    this.ufMap = new HashMap<Cell, Cell>();
-    this.ufTree = new ArrayList<Edge>();
-    this.edges = new ArrayList<Edge>();
+    // a new maze, so forget every path found in the old one
+    this.generation += 1;
+    if (this.pathCache == null) {
+      this.pathCache = new PathCache<int[]>(64);
+    }
+    this.pathCache.clear();
 
     // for resetting purposes, make everything false again just in case
     this.showDFS = false;
     this.showBFS = false;
     this.showAnswer = false;
-
-    // build all the cells (blocks) for this maze
-    this.cells = this.buildCells(this.width, this.height);
-    // connect all the cells in this maze
-    this.setAdjacents();
+    if (this.changed == null) {
+      this.changed = new IntQueue();
+    }
+    this.changed.clear();
+
+    // build the compact grid for this maze, every cell starts gray and walled
+    this.grid = new MazeGrid(this.width, this.height);
+    this.searcher = null;
+    this.meetingSearch = new BidirectionalSearch(this.grid);
+    this.dfsSearch = null;
+    this.bfsSearch = null;
     // set random weights to the edges connecting the cells
     this.setRandomWeights();
-    // find the MST to connect all the cells in this maze
+    // find the MST to connect all the cells in this maze, knocking down the
+    // walls along it
     this.unionFind();
-    // if the edge is not in the MST, draw a wall to cut off the edge
-    this.setCellWalls();
-    // if the edge is not in the MST, add it to the cell's outEdges
-    this.setCellOutEdges();
-
-    // set the colors of the start and goal cells
-    this.cells.get(this.cells.size() - 1).color = Color.blue;
+    // root the spanning tree at the goal, for answering the path to it
+    this.treeRoot = this.grid.size() - 1;
+    this.treeParent = this.grid.treeParents(this.treeRoot);
+    this.lcaIndex = null;
+
+    // set the color of the goal cell
+    this.grid.colors[this.grid.size() - 1] = MazeGrid.GOAL;
+    // new walls and colors, so the whole board has to be drawn again
+    if (this.tileCache == null) {
+      this.tileCache = new TileCache(this.cellSize);
+    }
+    this.renderer = this.makeRenderer();
+    this.lastScene = null;
+    this.lastBoard = null;
   }
 
   // initialize the player to the start cell of the maze
   void initPlayer() {
     this.user = new User();
-    this.user.updateCurrent(this.cells.get(0));
+    this.user.updateCurrent(0);
+    this.visit(0);
+    this.renderer.follow(0, 0);
   }
 
-  // builds the board for this game given the size
-  ArrayList<Cell> buildCells(int width, int height) {
-    ArrayList<Cell> result = new ArrayList<Cell>(width * height);
-    // Build the board
-    for (int y = 0; y < height; y++) {
-      for (int x = 0; x < width; x++) {
-        Cell c = new Cell(x, y);
-        result.add(c);
-      }
+  // EFFECT: Randomly sets the weight of each edge
+  void setRandomWeights() {
+    // FOR TESTING!!!!!!!, we use a Random seed of 5
+    // Random r = new Random(5);
+    Random r = new Random();
+    if (this.strips > 1) {
+      this.grid.setRandomWeights(r, this.strips);
     }
-    return result;
-  }
-
-  // EFFECT: Sets the adjacent cells for all cells on this board & adds down and
-  // right edges for each cell to this game's list of edges
-  void setAdjacents() {
-    int currentIndex = 0;
-    Cell currentCell;
-
-    for (int y = 0; y < this.height; y++) {
-      for (int x = 0; x < this.width; x++) {
-        currentIndex = (y * this.width) + x;
-        currentCell = this.cells.get(currentIndex);
-
-        // if not in the leftmost column
-        if (currentCell.x > 0) {
-          Edge left = new Edge(currentCell, this.cells.get(currentIndex - 1));
-          currentCell.left = left;
-        }
-        // if not in the topmost row
-        if (currentCell.y > 0) {
-          Edge top = new Edge(currentCell, this.cells.get(currentIndex - this.width));
-          currentCell.top = top;
-        }
-        // if not in the rightmost column
-        if (currentCell.x < this.width - 1) {
-          Edge right = new Edge(currentCell, this.cells.get(currentIndex + 1));
-          currentCell.right = right;
-
-          this.edges.add(currentCell.right);
-        }
-        // if not on the bottom most row
-        if (currentCell.y < this.height - 1) {
-          Edge bottom = new Edge(currentCell, this.cells.get(currentIndex + this.width));
-          currentCell.bottom = bottom;
-
-          this.edges.add(currentCell.bottom);
-        }
-      }
+    else {
+      this.grid.setRandomWeights(r);
     }
   }
 
-  // EFFECT: assigns appropriate boolean value to each cell's right and bottom
-  // wall attribute
-  void setCellWalls() {
-    // if the edge is in the MST, add to the cell's outEdges
-    for (Cell c : this.cells) {
-      // if the edge from the current cell to it's right cell is in the spanning tree,
-      // there should not be a wall
-      if (this.ufTree.contains(c.right)) {
-        c.rightWall = false;
-      }
-
-      // if the edge from the current cell to it's bottom cell is in the spanning
-      // tree,
-      // there should not be a wall
-      if (this.ufTree.contains(c.bottom)) {
-        c.bottomWall = false;
-      }
+  // Effect: Creates a spanning tree using the union find and krusgal's
+  // algorithm, knocking down the grid's wall along every edge of the tree
+  // (big mazes build strips of rows in parallel and then join them)
+  void unionFind() {
+    if (this.strips > 1) {
+      this.grid.stripKruskal(this.strips);
+    }
+    else {
+      this.grid.kruskal(0, this.height);
     }
   }
 
-  // EFFECT: if the adjacent edges of the cell is not in the MST, add it to it's
-  // outEdges
-  void setCellOutEdges() {
-    for (Cell c : this.cells) {
-      // if the MST contains this cells right edge, add it to it's outEdges
-      // also, add the opposite edge to the toCell's outEdges.
-      if (this.ufTree.contains(c.right)) {
-        Cell toCell = c.right.to;
-        c.outEdges.add(c.right);
-        toCell.outEdges.add(toCell.left);
-      }
-      // if the MST contains this cells bottom edge, add it to it's outEdges
-      // also, add the opposite edge to the toCell's outEdges.
-      if (this.ufTree.contains(c.bottom)) {
-        Cell toCell = c.bottom.to;
-        c.outEdges.add(c.bottom);
-        toCell.outEdges.add(toCell.top);
-      }
-    }
+  // Return the indices of the cells searched, in order, by dfs or bfs over this
+  // maze's grid using the given IIntCollection of cell indices
+  int[] searchPath(int start, int end, IIntCollection worklist) {
+    return this.search(start, end, worklist).order;
   }
 
-  // EFFECT: Randomly sets the weight of each edge
-  void setRandomWeights() {
-    // FOR TESTING!!!!!!!, we use a Random seed of 5
-    // Random r = new Random(5);
-    Random r = new Random();
-    for (Edge e : this.edges) {
-      e.setWeight(r.nextInt(50));
+  // Search this maze's grid with dfs or bfs using the given IIntCollection of
+  // cell indices, returning both the cells searched and the start to end path
+  SearchResult search(int start, int end, IIntCollection worklist) {
+    if (this.searcher == null) {
+      this.searcher = new GridSearch(this.grid);
     }
+    return this.searcher.search(start, end, worklist);
   }
 
-  // Makes a hash map using this games cells where each cell references itself
-  HashMap<Cell, Cell> initMap(ArrayList<Edge> wl) {
-    HashMap<Cell, Cell> result = new HashMap<Cell, Cell>();
-    // for every single edge in this maze, add it's cells to the map
-    for (int i = 0; i < wl.size(); i++) {
-      Cell from = wl.get(i).from;
-      Cell to = wl.get(i).to;
-
-      result.put(from, from);
-      result.put(to, to);
+  // Find the answer path between the given cells, remembering it until the
+  // maze is regenerated
+  // (the array is shared with later calls, so it must not be mutated)
+  int[] answerPath(int start, int end) {
+    PathQuery query = new PathQuery(this.generation, start, end, "answer");
+    int[] answer = this.pathCache.get(query);
+    if (answer == null) {
+      answer = this.walkAnswerPath(start, end);
+      this.pathCache.put(query, answer);
     }
-    return result;
+    return answer;
   }
 
-  // Effect: Creates a spanning tree using the union find and krusgal's algorithm
-  void unionFind() {
-    // define a work list for the unionFind, assign to it a copy of our list of
-    // edges, but sorted by weight
-    ArrayList<Edge> worklist = new MazeUtils().sortEdges(this.edges);
-    this.ufMap = this.initMap(worklist);
-    int i = 0;
-    // While number of edges in the tree is less than the number of cells - 1 &&
-    // they are still edges to look through
-    while (this.ufTree.size() < this.cells.size() - 1 && i < worklist.size()) {
-      // Get the from and to cells from the current edge
-      Cell from = worklist.get(i).from;
-      Cell to = worklist.get(i).to;
-
-      // If the Cells are in the same group move on to the next edge
-      if (this.find(this.ufMap, to).equals(this.find(this.ufMap, from))) {
-        i += 1;
-      }
+  // Find the answer path by walking up the spanning tree: the maze is a tree
+  // rooted at the goal, so the path from any cell to the goal is its chain of
+  // parents
+  // (a cell has no path to itself, it is already there, so that is empty)
+  int[] walkAnswerPath(int start, int end) {
+    if (start == end) {
+      return new int[0];
+    }
+    if (end != this.treeRoot) {
+      // only the goal has parent pointers leading to it, search for anything else
+      return this.meetingSearch.search(start, end).path;
+    }
+    // if the start isn't connected to the goal yet
+    int[] parents = this.treeParent;
+    if (parents[start] == -1) {
+      // return empty path
+      return new int[0];
+    }
 
-      // if not, add this current edge to the spanning tree && and set cells to and
-      // from to be in the same group
-      else {
-        this.ufTree.add(worklist.remove(i));
-        // set to's hash map value to from's hash map value
-        this.unionGroup(this.ufMap, to, from);
-      }
+    int length = 1;
+    for (int step = start; step != end; step = parents[step]) {
+      length += 1;
     }
+    int[] answer = new int[length];
+    answer[0] = start;
+    // while we haven't reached the goal, add the next cell on the way up
+    for (int i = 1; i < length; i++) {
+      answer[i] = parents[answer[i - 1]];
+    }
+    return answer;
   }
 
-  // Find the Cell of the given key in the given map
-  Cell find(HashMap<Cell, Cell> hm, Cell key) {
-    Cell rep = hm.get(key);
-    while (!hm.get(rep).equals(rep)) {
-      rep = hm.get(rep);
+  // Find the lightest path between the given cells by their edge weights, which
+  // stays correct if the maze has loops
+  // (remembered until the maze is regenerated, so it must not be mutated)
+  int[] shortestPath(int start, int end) {
+    PathQuery query = new PathQuery(this.generation, start, end, "shortest");
+    int[] path = this.pathCache.get(query);
+    if (path == null) {
+      path = new DialSearch(this.grid).search(start, end).path;
+      this.pathCache.put(query, path);
     }
-    return rep;
+    return path;
   }
 
-  // EFFECT: set the given first cell's representative to the given second cell's
-  // representative
-  // in the given map
-  void unionGroup(HashMap<Cell, Cell> hm, Cell first, Cell second) {
-    hm.put(this.find(hm, first), this.find(hm, second));
+  // Search for a shortest path between the given cells with A*, the result's
+  // order holds every cell expanded, so its length is how many were expanded
+  SearchResult aStarSearch(int start, int end) {
+    return new AStarSearch(this.grid).search(start, end);
   }
 
-  // Return a search path using dfs or bfs using the given ICollection<Cell> data
-  // type
-  ArrayList<Cell> searchPath(Cell start, Cell end, ICollection<Cell> worklist) {
-    HashMap<Cell, Cell> cameFromEdge = new HashMap<Cell, Cell>();
-    ArrayList<Cell> alreadySeen = new ArrayList<Cell>();
-    worklist.add(start);
-
-    while (worklist.size() > 0) {
-      Cell next = worklist.remove();
+  // Search for a shortest path between the given cells with a bfs from both
+  // ends, the result also holds the index of the cell where the two met
+  MeetingResult bidirectionalSearch(int start, int end) {
+    return this.meetingSearch.search(start, end);
+  }
 
-      if (alreadySeen.contains(next)) {
-        // do nothing
-      }
-      else if (next == end) {
-        break;
-      }
-      else {
-        for (Edge e : next.outEdges) {
-          worklist.add(e.to);
-          cameFromEdge.put(next, e.to);
-        }
-        alreadySeen.add(next);
-      }
+  // the distance index over this maze's spanning tree
+  // EFFECT: builds it, once per maze
+  LcaIndex treeIndex() {
+    if (this.lcaIndex == null) {
+      this.lcaIndex = new LcaIndex(this.treeParent);
     }
-    // how do animate this and convert our cameFromEdge into an ArrayList<Cell>
-    return alreadySeen;
-
+    return this.lcaIndex;
   }
 
-  // Find the answer path using dijkstra's algorithm - referencing lecture 31
-  ArrayList<Cell> answerPath(Cell start, Cell end) {
-    ArrayList<Cell> unvisited = new ArrayList<Cell>();
-    HashMap<Cell, Integer> distances = new HashMap<Cell, Integer>();
-    HashMap<Cell, Cell> predecessors = new HashMap<Cell, Cell>();
-
-    // set the distance of the start cell to 0
-    unvisited.add(start);
-    distances.put(start, 0);
-
-    // while there are still unvisited cells to look through
-    while (unvisited.size() > 0) {
-      Cell c = unvisited.remove(0);
-
-      // For edges coming out of the current cell
-      for (Edge e : c.outEdges) {
-        // if it is unvisited or has a larger distance than this potential path
-        if (distances.get(e.to) == null || distances.get(e.to) > distances.get(c) + e.weight) {
-
-          // update the distance and update predecessor
-          distances.put(e.to, distances.get(c) + e.weight);
-          predecessors.put(e.to, c);
+  // the number of steps between the two given cells along the maze's spanning
+  // tree, which is the only way through until the maze is braided (after that
+  // there may be a shorter way, which bidirectionalSearch finds)
+  int distance(int a, int b) {
+    return this.treeIndex().distance(a, b);
+  }
 
-          // add to be examined later on
-          unvisited.add(e.to);
-        }
+  // visualizes the current game scene, reusing the last scene if nothing was
+  // painted or moved since it was drawn, or if the renderer painted the changes
+  // into the same image the last scene already shows
+  public WorldScene makeScene() {
+    if (this.lastScene == null || this.renderer.isDirty()) {
+      // only the cells in view changed since the last frame are drawn again
+      WorldImage board = this.renderer.draw(this.grid);
+      if (this.lastScene == null || board != this.lastBoard) {
+        this.lastScene = this.sceneOf(board);
+        this.lastBoard = board;
       }
     }
-    ArrayList<Cell> answer = new ArrayList<Cell>();
-    Cell step = end;
-    // if there was not a path to the end yet
-    if (predecessors.get(step) == null) {
-      // return empty list
-      return answer;
-
-    }
-
-    answer.add(step);
-
-    // while we haven't reached the start
-    while (step != start) {
-      // add the cell before to the answer path
-      step = predecessors.get(step);
-      answer.add(0, step);
-    }
-    return answer;
+    return this.lastScene;
   }
 
-  // visualizes the current game scene
-  public WorldScene makeScene() {
-
-    WorldScene current = new WorldScene(this.width * this.cellSize, this.height * this.cellSize);
-
-    WorldImage curMaze = this.drawCurrentBoard();
+  // draws a new scene of the current board
+  WorldScene drawScene() {
+    return this.sceneOf(this.renderer.draw(this.grid));
+  }
 
-    current.placeImageXY(curMaze, (this.cellSize * (this.width)) / 2,
-        (this.cellSize * (this.height)) / 2);
+  // a new scene showing the given board image
+  WorldScene sceneOf(WorldImage board) {
+    WorldScene current = new WorldScene(this.sceneWidth(), this.sceneHeight());
+    current.placeImageXY(board, this.sceneWidth() / 2, this.sceneHeight() / 2);
     return current;
   }
 
   // visualizes the ending scene of the game
   public WorldScene makeEndScene() {
     // show the answer path
-    this.answerPath = this.answerPath(this.cells.get(0), this.cells.get(this.cells.size() - 1));
-    for (Cell c : this.answerPath) {
-      c.setColor(Color.orange);
+    this.answerPath = this.answerPath(0, this.grid.size() - 1);
+    for (int cell : this.answerPath) {
+      this.paint(cell, MazeGrid.ANSWER);
     }
-    WorldScene current = this.makeScene();
+    WorldScene current = this.drawScene();
 
     WorldImage message = new TextImage("The maze is solved!", 20, Color.black)
-        .movePinholeTo(new Posn(0, 0));
+        .movePinholeTo(Cell.ORIGIN);
 
-    current.placeImageXY(message, (this.cellSize * (this.width)) / 2,
-        (this.cellSize * (this.height)) / 2);
+    current.placeImageXY(message, this.sceneWidth() / 2, this.sceneHeight() / 2);
 
     return current;
   }
 
-  // Draws this current cell configuration
-  WorldImage drawCurrentBoard() {
-    // Accumulator: the board image so far
-    WorldImage boardAcc = new EmptyImage();
-    // Accumulator: the row image so far
-    WorldImage rowAcc = new EmptyImage();
-    for (int y = 0; y < height; y++) {
-      rowAcc = new EmptyImage();
-      for (int x = 0; x < width; x++) {
-        int currentIndex = (y * width) + x;
-        Cell currentCell = this.cells.get(currentIndex);
+  // show the answer path on the board
+  void showAnswer() {
+    this.showPath(this.answerPath(0, this.grid.size() - 1));
+  }
 
-        rowAcc = new BesideImage(rowAcc, currentCell.drawCell(this.cellSize));
-      }
-      boardAcc = new AboveImage(boardAcc, rowAcc);
-    }
+  // show the lightest path to the goal on the board, which differs from the
+  // answer path once the maze has loops
+  void showShortest() {
+    this.showPath(this.shortestPath(0, this.grid.size() - 1));
+  }
 
-    return boardAcc.movePinholeTo(new Posn(0, 0));
+  // animate the given path from the start to the goal, a cell per tick
+  void showPath(int[] path) {
+    this.answerPath = path;
+    this.answerStep = 0;
+    this.showAnswer = this.answerPath.length > 0;
   }
 
-  // show the answer path on the board
-  void showAnswer() {
-    this.answerPath = this.answerPath(this.cells.get(0), this.cells.get(this.cells.size() - 1));
-    this.showAnswer = true;
+  // EFFECT: knocks down the walls of about one in twenty cells, at random,
+  // adding loops to the maze
+  void braid() {
+    this.grid.braid(new Random(), this.grid.size() / 20);
+    // the walls changed, so the paths found so far may no longer be the
+    // lightest, and the whole board has to be drawn again
+    // (the spanning tree was rooted when the maze was made and is still all
+    // open, so the answer path and distance stay valid along it)
+    this.generation += 1;
+    this.pathCache.clear();
+    this.renderer = this.makeRenderer();
+    this.renderer.follow(this.grid.xOf(this.user.current), this.grid.yOf(this.user.current));
+    this.lastScene = null;
+    this.lastBoard = null;
   }
 
   // animate and show the breadth first search
   void showBreadthFirst() {
-    this.bfsPath = this.searchPath(this.cells.get(0), this.cells.get(this.cells.size() - 1),
-        new Queue<Cell>(new Deque<Cell>()));
+    // only start the search here, updateMaze searches one cell per tick
+    // (the worklist has room for every cell, so no tick has to grow it, and it
+    // is kept for the next time the search is started)
+    if (this.bfsSearch == null) {
+      this.bfsSearch = new GridSearch(this.grid, new IntQueue(this.grid.size()));
+    }
+    this.bfsSearch.start(0, this.grid.size() - 1);
     this.showBFS = true;
   }
 
   // animate and show the depth first search
   void showDepthFirst() {
-    this.dfsPath = this.searchPath(this.cells.get(0), this.cells.get(this.cells.size() - 1),
-        new Stack<Cell>(new Deque<Cell>()));
+    // only start the search here, updateMaze searches one cell per tick
+    // (the worklist has room for every cell, so no tick has to grow it, and it
+    // is kept for the next time the search is started)
+    if (this.dfsSearch == null) {
+      this.dfsSearch = new GridSearch(this.grid, new IntStack(this.grid.size()));
+    }
+    this.dfsSearch.start(0, this.grid.size() - 1);
     this.showDFS = true;
   }
 
-  // EFFECT: update the visited cell colors
+  // EFFECT: update the visited cell colors, only looking at the cells that
+  // changed since the last tick: the ones the user left or entered, and the
+  // ones the animations painted
   void updateVisitedColors() {
-    this.cells.get(this.cells.size() - 1).setColor(Color.blue);
-    for (Cell c : this.cells) {
-      if (c.isVisted) {
-        c.setColor(this.trailColor);
-      }
+    while (!this.user.changed.isEmpty()) {
+      this.recolor(this.user.changed.remove());
+    }
+    while (!this.changed.isEmpty()) {
+      this.recolor(this.changed.remove());
+    }
+  }
+
+  // EFFECT: puts back the color of the given cell if it is the user's, on the
+  // trail, or the goal
+  void recolor(int cell) {
+    if (cell == this.user.current) {
+      this.paint(cell, MazeGrid.PLAYER);
+    }
+    else if (this.grid.isVisited(cell)) {
+      this.paint(cell, MazeGrid.TRAIL);
+    }
+    else if (cell == this.grid.size() - 1) {
+      this.paint(cell, MazeGrid.GOAL);
+    }
+  }
+
+  // EFFECT: paints the given cell as a step of an animation, to be recolored
+  // on the next tick
+  void paintStep(int cell, byte color) {
+    this.paint(cell, color);
+    this.changed.add(cell);
+  }
+
+  // a renderer for this maze's board, in the mode this maze is drawn in, only
+  // showing the part that fits on the screen
+  IBoardRenderer makeRenderer() {
+    if (this.overview && this.overviewZoom() > 1) {
+      byte[] priority = new byte[] { MazeGrid.PLAYER, MazeGrid.ANSWER, MazeGrid.GOAL,
+          MazeGrid.TRAIL, MazeGrid.SEARCHED };
+      return new OverviewRenderer(this.width, this.height, this.overviewZoom(), this.cellSize,
+          priority);
+    }
+    int viewWidth = Math.min(this.width, VIEW_WIDTH);
+    int viewHeight = Math.min(this.height, VIEW_HEIGHT);
+    IWindowRenderer board;
+    if (this.rasterMode) {
+      board = new RasterRenderer(viewWidth, viewHeight, this.cellSize);
+    }
+    else {
+      board = new BoardRenderer(viewWidth, viewHeight, this.cellSize, this.tileCache);
+    }
+    if (viewWidth == this.width && viewHeight == this.height) {
+      return board;
+    }
+    return new ViewportRenderer(this.width, this.height, viewWidth, viewHeight, board);
+  }
+
+  // the fewest cells across and down a block can hold for the whole maze to
+  // fit on the screen, a block to a cell
+  int overviewZoom() {
+    int zoom = 1;
+    while ((this.width + zoom - 1) / zoom > VIEW_WIDTH
+        || (this.height + zoom - 1) / zoom > VIEW_HEIGHT) {
+      zoom += 1;
+    }
+    return zoom;
+  }
+
+  // EFFECT: switches between the zoomed out view of the whole maze and the
+  // cells around the player
+  void toggleOverview() {
+    this.overview = !this.overview;
+    this.renderer = this.makeRenderer();
+    this.renderer.follow(this.grid.xOf(this.user.current), this.grid.yOf(this.user.current));
+  }
+
+  // the width of this maze's scene, in pixels
+  int sceneWidth() {
+    return Math.min(this.width, VIEW_WIDTH) * this.cellSize;
+  }
+
+  // the height of this maze's scene, in pixels
+  int sceneHeight() {
+    return Math.min(this.height, VIEW_HEIGHT) * this.cellSize;
+  }
+
+  // EFFECT: sets the color of the given cell to the given palette index,
+  // marking it to be redrawn if the color changed
+  void paint(int cell, byte color) {
+    if (this.grid.colors[cell] != color) {
+      this.grid.colors[cell] = color;
+      this.renderer.markDirty(cell);
     }
-    this.user.current.setColor(this.currentColor);
   }
 
-  // EFFECT: update the current position of the user to the given Cell
-  void moveUser(Cell next, Edge connection) {
-    if (this.ufTree.contains(connection)) {
+  // EFFECT: update the current position of the user to the given cell, if it
+  // is next to theirs with no wall in between
+  void moveUser(int next) {
+    int edge = this.grid.edgeBetween(this.user.current, next);
+    if (edge != -1 && this.grid.isOpen(edge)) {
       this.user.updateCurrent(next);
+      this.visit(next);
+      this.renderer.follow(this.grid.xOf(next), this.grid.yOf(next));
+    }
+  }
+
+  // EFFECT: marks the given cell as visited, adding it to the user's trail the
+  // first time
+  void visit(int cell) {
+    if (!this.grid.isVisited(cell)) {
+      this.grid.setVisited(cell);
+      this.user.logVisit(cell);
     }
   }
 
@@ -577,87 +706,82 @@ class Maze extends World {
 
     // if showBFS is true
     if (this.showBFS) {
-      Cell temp = this.bfsPath.remove(0);
-      temp.setColor(new Color(102, 153, 153));
-      if (this.bfsPath.size() == 0) {
+      if (this.bfsSearch.hasNext()) {
+        this.paintStep(this.bfsSearch.next(), MazeGrid.SEARCHED);
+      }
+      if (!this.bfsSearch.hasNext()) {
         this.showBFS = false;
       }
     }
 
     // if showDFS is true
     if (this.showDFS) {
-      Cell temp = this.dfsPath.remove(0);
-      temp.setColor(new Color(102, 153, 153));
-      if (this.dfsPath.size() == 0) {
+      if (this.dfsSearch.hasNext()) {
+        this.paintStep(this.dfsSearch.next(), MazeGrid.SEARCHED);
+      }
+      if (!this.dfsSearch.hasNext()) {
         this.showDFS = false;
       }
     }
 
     // if showAnswer is true
     if (this.showAnswer) {
-      Cell temp = this.answerPath.remove(0);
-      temp.setColor(Color.orange);
-      if (this.answerPath.size() == 0) {
+      this.paintStep(this.answerPath[this.answerStep], MazeGrid.ANSWER);
+      this.answerStep += 1;
+      if (this.answerStep == this.answerPath.length) {
         this.showAnswer = false;
       }
     }
   }
 
+  // is there nothing for a tick to do? (no animation running and no cell
+  // waiting to be recolored)
+  boolean isIdle() {
+    return !this.showBFS && !this.showDFS && !this.showAnswer
+        && this.changed.isEmpty() && this.user.changed.isEmpty();
+  }
+
   // on tick big-bang method
   public void onTick() {
-    this.updateMaze();
+    if (!this.isIdle()) {
+      this.updateMaze();
+    }
   }
 
   // EFFECT: inflict the appropriate change to this maze given the pressed key
   public void onKeyEvent(String key) {
-    int currentIndex = (this.user.current.y * this.width) + this.user.current.x;
-    Cell choice;
-    Edge edge;
-    if (key.equals("a")) {
-      this.showAnswer();
-    }
-    if (key.equals("b")) {
-      this.showBreadthFirst();
-    }
-    if (key.equals("d")) {
-      this.showDepthFirst();
-    }
-    if (key.equals("r")) {
-      this.initMaze();
-      this.initPlayer();
-    }
-    if (key.equals("up") && this.user.current.y > 0) {
-      choice = this.cells.get(currentIndex - this.width);
-      edge = choice.bottom;
-      this.moveUser(choice, edge);
-    }
-    if (key.equals("down") && this.user.current.y < this.height - 1) {
-      choice = this.cells.get(currentIndex + this.width);
-      edge = this.user.current.bottom;
-      this.moveUser(choice, edge);
-    }
-    if (key.equals("right") && this.user.current.x < this.width - 1) {
-      choice = this.cells.get(currentIndex + 1);
-      edge = this.user.current.right;
-      this.moveUser(choice, edge);
-    }
-    if (key.equals("left") && this.user.current.x > 0) {
-      choice = this.cells.get(currentIndex - 1);
-      edge = choice.right;
-      this.moveUser(choice, edge);
+    Runnable action = this.keyActions.get(key);
+    if (action != null) {
+      action.run();
     }
     else {
       // ignore the key
     }
   }
 
+  // EFFECT: moves the user the given number of cells across and down, if that
+  // is still on the board and there is no wall in the way
+  void step(int dx, int dy) {
+    int x = this.grid.xOf(this.user.current) + dx;
+    int y = this.grid.yOf(this.user.current) + dy;
+    if (x >= 0 && x < this.width && y >= 0 && y < this.height) {
+      this.moveUser(this.grid.index(x, y));
+    }
+  }
+
   // EFFECT: ends the game when the user reaches the goal
+  // (while the game goes on, the WorldEnd is only made again when the scene is)
   public WorldEnd worldEnds() {
-    if (this.user.current == this.cells.get(this.cells.size() - 1)) {
+    if (this.user.current == this.grid.size() - 1) {
       return new WorldEnd(true, this.makeEndScene());
     }
     else {
-      return new WorldEnd(false, this.makeScene());
+      WorldScene scene = this.makeScene();
+      if (this.playing == null || scene != this.playingScene) {
+        this.playing = new WorldEnd(false, scene);
+        this.playingScene = scene;
+      }
+      return this.playing;
     }
   }
 }
@@ -665,59 +789,15 @@ class Maze extends World {
 // class to hold utility methods for this gameWorld
 class MazeUtils {
   // returns the given list but sorts the edges in the list of edges by their
-  // weight from smallest to largest (using quick sort and does not mutate the
-  // given list!)
+  // weight from smallest to largest (keeping equal weights in order, and does
+  // not mutate the given list!)
+  // (the game sorts its edges with MazeGrid.sortByWeight, this is for Edges)
   ArrayList<Edge> sortEdges(ArrayList<Edge> sourceEdges) {
     ArrayList<Edge> result = this.copy(sourceEdges);
-    sortEdgesHelp(result, 0, result.size());
+    result.sort((e1, e2) -> Integer.compare(e1.weight, e2.weight));
     return result;
   }
 
-  // EFFECT: sorts the list of edges by weight, in the range of indices
-  // [low, high)
-  void sortEdgesHelp(ArrayList<Edge> edges, int low, int high) {
-    // check for completion
-    if (low >= high) {
-      return; // no items to sort
-    }
-
-    // select pivot
-    Edge pivot = edges.get(low);
-
-    // partition edges to lower or upper portions
-    int pivotIdx = partition(edges, low, high, pivot);
-
-    // sort both halves of the list
-    sortEdgesHelp(edges, low, pivotIdx);
-    sortEdgesHelp(edges, pivotIdx + 1, high);
-  }
-
-  // Returns the index where the pivot edge ends up in the sorted list of edges
-  // EFFECT: makes it so all edges on the left of the pivot are 'lighter' than the
-  // edges to the right
-  int partition(ArrayList<Edge> edges, int low, int high, Edge pivot) {
-    int curLow = low;
-    int curHigh = high - 1;
-
-    while (curLow < curHigh) {
-      // increment curLo until we find an Edge that is too big
-      while (curLow < high && edges.get(curLow).weight <= pivot.weight) {
-        curLow += 1;
-      }
-
-      // increment curHigh until we find an edge that is too small
-      while (curHigh >= low && edges.get(curHigh).weight > pivot.weight) {
-        curHigh -= 1;
-      }
-
-      if (curLow < curHigh) {
-        Collections.swap(edges, curLow, curHigh);
-      }
-    }
-    Collections.swap(edges, low, curHigh);
-    return curHigh;
-  }
-
   // creates a copy of the given list
   <T> ArrayList<T> copy(ArrayList<T> source) {
     ArrayList<T> result = new ArrayList<T>();
@@ -749,7 +829,7 @@ class ExamplesMaze {
 
   void initData() {
     // Initializing the user
-    this.user = new User(null, null);
+    this.user = new User(-1);
 
     // Initializing the game
     this.testGame = new Maze(27, 14, this.user);
@@ -779,11 +859,31 @@ class ExamplesMaze {
   void testUpdateCurrentCell(Tester t) {
     this.initData();
 
-    t.checkExpect(this.testGame4.user.current, this.testGame4.cells.get(0));
-
-    this.testGame4.user.updateCurrent(this.testGame4.cells.get(1));
-
-    t.checkExpect(this.testGame4.user.current, this.testGame4.cells.get(1));
+    t.checkExpect(this.testGame4.user.current, 0);
+
+    this.testGame4.user.updateCurrent(1);
+
+    t.checkExpect(this.testGame4.user.current, 1);
+
+    // every cell is kept once in the trail, in the order first visited, and
+    // marked as visited in the grid
+    Maze m = this.testGame4;
+    t.checkExpect(m.user.trailLength, 1);
+    m.visit(1);
+    m.visit(0);
+    m.visit(1);
+    t.checkExpect(m.user.trailLength, 2);
+    t.checkExpect(m.user.trail[0], 0);
+    t.checkExpect(m.user.trail[1], 1);
+    t.checkExpect(m.grid.isVisited(1), true);
+    t.checkExpect(m.grid.isVisited(3), false);
+    // the trail grows past its first capacity
+    Maze wide = new Maze(20, 2, new User());
+    for (int cell = 1; cell < wide.grid.size(); cell++) {
+      wide.visit(cell);
+    }
+    t.checkExpect(wide.user.trailLength, 40);
+    t.checkExpect(wide.user.trail[39], 39);
   }
 
   // test for setColor
@@ -797,18 +897,1053 @@ class ExamplesMaze {
 
   // test for setWeight
   void testSetWeight(Tester t) {
-    this.initData();
-    Edge testEdge = new Edge(this.testGame4.cells.get(0), this.testGame4.cells.get(1));
+    Edge testEdge = new Edge(new Cell(0, 0), new Cell(1, 0));
     t.checkExpect(testEdge.weight, 0);
     testEdge.setWeight(3);
     t.checkExpect(testEdge.weight, 3);
   }
 
-  // test for buildCells
-  void testBuildCells(Tester t) {
+  // tests for the index and edge arithmetic of MazeGrid
+  void testMazeGridIndices(Tester t) {
+    MazeGrid grid = new MazeGrid(3, 2);
+    t.checkExpect(grid.size(), 6);
+    t.checkExpect(grid.index(2, 1), 5);
+    t.checkExpect(grid.xOf(5), 2);
+    t.checkExpect(grid.yOf(5), 1);
+    t.checkExpect(grid.edgeTo(grid.rightEdge(1)), 2);
+    t.checkExpect(grid.edgeTo(grid.bottomEdge(1)), 4);
+    t.checkExpect(grid.edgeFrom(grid.bottomEdge(1)), 1);
+    // the rightmost column has no right edge, the bottom row no bottom edge
+    t.checkExpect(grid.hasEdge(grid.rightEdge(2)), false);
+    t.checkExpect(grid.hasEdge(grid.bottomEdge(4)), false);
+    t.checkExpect(grid.hasEdge(grid.bottomEdge(2)), true);
+    t.checkExpect(grid.edgeBetween(4, 1), grid.bottomEdge(1));
+    t.checkExpect(grid.edgeBetween(3, 2), -1);
+    t.checkConstructorException(
+        new IllegalArgumentException("A maze must have at least one cell"), "MazeGrid", 0, 3);
+  }
+
+  // tests for the wall and visited masks of MazeGrid
+  void testMazeGridWalls(Tester t) {
+    MazeGrid grid = new MazeGrid(2, 2);
+    int[] out = new int[4];
+    t.checkExpect(grid.hasRightWall(0), true);
+    t.checkExpect(grid.openNeighbors(0, out), 0);
+
+    grid.openEdge(grid.rightEdge(0));
+    grid.openEdge(grid.bottomEdge(1));
+    t.checkExpect(grid.hasRightWall(0), false);
+    t.checkExpect(grid.hasBottomWall(0), true);
+    t.checkExpect(grid.isOpen(grid.bottomEdge(1)), true);
+    t.checkExpect(grid.openNeighbors(1, out), 2);
+    t.checkExpect(out[0], 0);
+    t.checkExpect(out[1], 3);
+
+    t.checkExpect(grid.isVisited(3), false);
+    grid.setVisited(3);
+    t.checkExpect(grid.isVisited(3), true);
+    t.checkExpect(grid.hasRightWall(3), true);
+  }
+
+  // test that a generated maze's grid is a perfect maze with the player and
+  // goal painted
+  void testGeneratedGrid(Tester t) {
+    this.initData();
+    Maze m = this.testGame;
+    m.updateMaze();
+    int open = 0;
+    for (int e = 0; e < m.grid.weights.length; e++) {
+      if (m.grid.hasEdge(e) && m.grid.isOpen(e)) {
+        open += 1;
+      }
+    }
+    // a perfect maze has exactly one passage less than it has cells
+    t.checkExpect(open, m.grid.size() - 1);
+    t.checkExpect(m.grid.isVisited(0), true);
+    t.checkExpect(m.grid.color(0), MazeGrid.PALETTE[MazeGrid.PLAYER]);
+    t.checkExpect(m.grid.color(m.grid.size() - 1), Color.blue);
+  }
+
+  // tests for the circular array Deque, and the Queue and Stack built on it
+  void testDeque(Tester t) {
+    Deque<Integer> d = new Deque<Integer>(2);
+    t.checkExpect(d.isEmpty(), true);
+    d.addAtTail(2);
+    d.addAtHead(1);
+    // the head wrapped around to the end of the array
+    t.checkExpect(d.head, 1);
+    // grows past its capacity, keeping the order
+    d.addAtTail(3);
+    d.addAtHead(0);
+    t.checkExpect(d.size(), 4);
+    t.checkExpect(d.items.length, 4);
+    d.addAtTail(4);
+    t.checkExpect(d.items.length, 8);
+    t.checkExpect(d.get(0), 0);
+    t.checkExpect(d.get(4), 4);
+    t.checkExpect(d.find(i -> i > 2), 3);
+    t.checkExpect(d.find(i -> i > 9), null);
+    t.checkExpect(d.removeFromTail(), 4);
+    t.checkExpect(d.removeFromHead(), 0);
+    t.checkExpect(d.size(), 3);
+    t.checkException(new IndexOutOfBoundsException("No item at index 3"), d, "get", 3);
+    d.removeFromHead();
+    d.removeFromHead();
+    d.removeFromHead();
+    t.checkExpect(d.isEmpty(), true);
+    t.checkException(new RuntimeException("Can not remove head from empty list"), d,
+        "removeFromHead");
+    t.checkException(new RuntimeException("Can not remove tail from empty list"), d,
+        "removeFromTail");
+
+    ICollection<String> q = new Queue<String>(new Deque<String>());
+    ICollection<String> st = new Stack<String>(new Deque<String>());
+    t.checkExpect(q.isEmpty(), true);
+    q.add("a");
+    q.add("b");
+    st.add("a");
+    st.add("b");
+    t.checkExpect(q.isEmpty(), false);
+    t.checkExpect(q.remove(), "a");
+    t.checkExpect(st.remove(), "b");
+    t.checkExpect(st.size(), 1);
+  }
+
+  // tests for the int Queue and Stack
+  void testIntCollections(Tester t) {
+    IIntCollection q = new IntQueue(2);
+    IIntCollection st = new IntStack(1);
+    for (int i = 0; i < 5; i++) {
+      q.add(i);
+      st.add(i);
+    }
+    t.checkExpect(q.size(), 5);
+    t.checkExpect(q.remove(), 0);
+    t.checkExpect(q.remove(), 1);
+    // wrap around the end of the array before growing again
+    q.add(5);
+    q.add(6);
+    q.add(7);
+    q.add(8);
+    t.checkExpect(q.size(), 7);
+    for (int i = 2; i < 9; i++) {
+      t.checkExpect(q.remove(), i);
+    }
+    t.checkExpect(q.isEmpty(), true);
+    t.checkException(new RuntimeException("Can not remove from an empty queue"), q, "remove");
+
+    t.checkExpect(st.remove(), 4);
+    t.checkExpect(st.remove(), 3);
+    st.clear();
+    t.checkExpect(st.isEmpty(), true);
+    t.checkException(new RuntimeException("Can not remove from an empty stack"), st, "remove");
+  }
+
+  // tests for searchPath over cell indices
+  void testSearchPathIndices(Tester t) {
+    this.initData();
+    Maze m = this.testGame1;
+    int end = m.grid.size() - 1;
+    // the start is always searched first
+    t.checkExpect(m.searchPath(0, end, new IntQueue())[0], 0);
+  }
+
+  // tests for search and the path it reconstructs
+  void testSearch(Tester t) {
+    this.initData();
+    Maze m = this.testGame2;
+    int end = m.grid.size() - 1;
+    SearchResult bfs = m.search(0, end, new IntQueue());
+    SearchResult dfs = m.search(0, end, new IntStack());
+    // a perfect maze has only one path, so both searches find the same one
+    t.checkExpect(bfs.path, dfs.path);
+    t.checkExpect(bfs.path[0], 0);
+    t.checkExpect(bfs.path[bfs.path.length - 1], end);
+    boolean connected = true;
+    for (int i = 1; i < bfs.path.length; i++) {
+      int edge = m.grid.edgeBetween(bfs.path[i - 1], bfs.path[i]);
+      connected = connected && edge != -1 && m.grid.isOpen(edge);
+    }
+    t.checkExpect(connected, true);
+    // every cell on the path but the goal was searched
+    t.checkExpect(bfs.order.length >= bfs.path.length - 1, true);
+
+    // a goal that can't be reached gives an empty path
+    MazeGrid walled = new MazeGrid(2, 1);
+    SearchResult none = new GridSearch(walled).search(0, 1, new IntQueue());
+    t.checkExpect(none.path, new int[0]);
+    t.checkExpect(none.order, new int[] { 0 });
+    t.checkExpect(new GridSearch(walled).search(1, 1, new IntQueue()).path, new int[] { 1 });
+  }
+
+  // tests for stepping a GridSearch one cell at a time
+  void testGridSearchSteps(Tester t) {
+    this.initData();
+    Maze m = this.testGame1;
+    int end = m.grid.size() - 1;
+    int[] order = m.searchPath(0, end, new IntQueue());
+    GridSearch steps = new GridSearch(m.grid);
+    steps.start(0, end, new IntQueue());
+    // nothing is searched until it is asked for
+    t.checkExpect(steps.alreadySeen.isEmpty(), true);
+    for (int i = 0; i < order.length; i++) {
+      t.checkExpect(steps.hasNext(), true);
+      t.checkExpect(steps.next(), order[i]);
+    }
+    t.checkExpect(steps.hasNext(), false);
+    t.checkExpect(steps.found, true);
+    t.checkException(new RuntimeException("No more cells to search"), steps, "next");
+  }
+
+  // tests for the bfs and dfs animations in updateMaze
+  void testAnimateSearch(Tester t) {
+    this.initData();
+    Maze m = this.testGame1;
+    int[] order = m.searchPath(0, m.grid.size() - 1, new IntQueue());
+    m.showBreadthFirst();
+    t.checkExpect(m.showBFS, true);
+    m.updateMaze();
+    m.updateMaze();
+    // one cell is searched and colored each tick
+    t.checkExpect(m.bfsSearch.alreadySeen.cardinality(), 2);
+    t.checkExpect(m.grid.colors[order[1]], MazeGrid.SEARCHED);
+    t.checkExpect(m.grid.color(order[1]), new Color(102, 153, 153));
+    for (int i = 2; i < order.length; i++) {
+      m.updateMaze();
+    }
+    t.checkExpect(m.showBFS, false);
+
+    m.showDepthFirst();
+    for (int i = 0; i < m.grid.size() && m.showDFS; i++) {
+      m.updateMaze();
+    }
+    t.checkExpect(m.showDFS, false);
+    t.checkExpect(m.dfsSearch.found, true);
+  }
+
+  // tests for treeParents and answerPath
+  void testAnswerPathWalk(Tester t) {
+    this.initData();
+    Maze m = this.testGame2;
+    int goal = m.grid.size() - 1;
+    // the tree is rooted when the maze is made
+    t.checkExpect(m.treeParent, m.grid.treeParents(goal));
+    t.checkExpect(m.treeParent[goal], goal);
+    // the walk up the tree is the one path through the maze
+    t.checkExpect(m.answerPath(0, goal), m.search(0, goal, new IntQueue()).path);
+    // paths to cells other than the goal are found too
+    t.checkExpect(m.answerPath(goal, 0), m.search(goal, 0, new IntQueue()).path);
+    // a cell is already at itself, at the goal or anywhere else
+    t.checkExpect(m.answerPath(goal, goal), new int[0]);
+    t.checkExpect(m.answerPath(5, 5), new int[0]);
+    Maze single = new Maze(1, 1, new User());
+    single.showAnswer();
+    t.checkExpect(single.answerPath, new int[0]);
+    t.checkExpect(single.showAnswer, false);
+
+    MazeGrid grid = new MazeGrid(3, 1);
+    grid.openEdge(grid.rightEdge(0));
+    t.checkExpect(grid.treeParents(0), new int[] { 0, 0, -1 });
+    t.checkExpect(grid.treeParents(1), new int[] { 1, 1, -1 });
+  }
+
+  // tests for the answer animation in updateMaze
+  void testAnimateAnswer(Tester t) {
+    this.initData();
+    Maze m = this.testGame4;
+    m.showAnswer();
+    int length = m.answerPath.length;
+    t.checkExpect(m.showAnswer, true);
+    for (int i = 0; i < length; i++) {
+      m.updateMaze();
+    }
+    t.checkExpect(m.showAnswer, false);
+    // the path is kept whole, only the cursor moves
+    t.checkExpect(m.answerPath.length, length);
+    t.checkExpect(m.answerStep, length);
+    t.checkExpect(m.grid.color(m.answerPath[length - 1]), Color.orange);
+  }
+
+  // tests for DialSearch on a maze with loops
+  void testDialSearch(Tester t) {
+    MazeGrid grid = new MazeGrid(12, 9);
+    Random r = new Random(5);
+    grid.setRandomWeights(r);
+    for (int e : grid.edgesByWeight()) {
+      if (r.nextInt(3) > 0) {
+        grid.openEdge(e);
+      }
+    }
+    grid.braid(r, 20);
+
+    // every distance agrees with relaxing all the edges until nothing changes
+    int[] dist = new int[grid.size()];
+    Arrays.fill(dist, Integer.MAX_VALUE);
+    dist[0] = 0;
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (int e : grid.edgesByWeight()) {
+        int a = grid.edgeFrom(e);
+        int b = grid.edgeTo(e);
+        if (grid.isOpen(e) && dist[a] != Integer.MAX_VALUE && dist[a] + grid.weights[e] < dist[b]) {
+          dist[b] = dist[a] + grid.weights[e];
+          changed = true;
+        }
+        if (grid.isOpen(e) && dist[b] != Integer.MAX_VALUE && dist[b] + grid.weights[e] < dist[a]) {
+          dist[a] = dist[b] + grid.weights[e];
+          changed = true;
+        }
+      }
+    }
+    DialSearch dial = new DialSearch(grid);
+    SearchResult all = dial.search(0, -1);
+    t.checkExpect(dial.dist, dist);
+    // cells are settled in order of distance
+    boolean ordered = true;
+    for (int i = 1; i < all.order.length; i++) {
+      ordered = ordered && dist[all.order[i - 1]] <= dist[all.order[i]];
+    }
+    t.checkExpect(ordered, true);
+
+    // the path found adds up to the shortest distance
+    int goal = all.order[all.order.length - 1];
+    int[] path = dial.search(0, goal).path;
+    int total = 0;
+    for (int i = 1; i < path.length; i++) {
+      total += grid.weights[grid.edgeBetween(path[i - 1], path[i])];
+    }
+    t.checkExpect(path[0], 0);
+    t.checkExpect(total, dist[goal]);
+
+    // in a perfect maze, the shortest path is the only path
+    this.initData();
+    t.checkExpect(this.testGame1.shortestPath(0, 49), this.testGame1.answerPath(0, 49));
+  }
+
+  // tests for IntHeap
+  void testIntHeap(Tester t) {
+    IntHeap h = new IntHeap(6);
+    h.add(3, 30);
+    h.add(1, 10);
+    h.add(5, 50);
+    h.add(0, 40);
+    t.checkExpect(h.contains(5), true);
+    t.checkExpect(h.contains(2), false);
+    // lowering a key moves it up, raising one does nothing
+    h.add(5, 5);
+    h.add(1, 100);
+    t.checkExpect(h.size(), 4);
+    t.checkExpect(h.remove(), 5);
+    t.checkExpect(h.remove(), 1);
+    t.checkExpect(h.remove(), 3);
+    t.checkExpect(h.contains(3), false);
+    h.add(2, 1);
+    h.clear();
+    t.checkExpect(h.isEmpty(), true);
+    t.checkExpect(h.contains(0), false);
+    t.checkException(new RuntimeException("Can not remove from an empty heap"), h, "remove");
+  }
+
+  // tests for A* search
+  void testAStarSearch(Tester t) {
+    this.initData();
+    Maze m = this.testGame2;
+    Random r = new Random(5);
+    for (int i = 0; i < 10; i++) {
+      int from = r.nextInt(m.grid.size());
+      int to = r.nextInt(m.grid.size());
+      // the one path through the maze
+      t.checkExpect(m.aStarSearch(from, to).path, m.answerPath(from, to));
+    }
+
+    // with no walls, A* heads straight for the goal while bfs searches everything
+    MazeGrid open = new MazeGrid(20, 20);
+    for (int e = 0; e < open.weights.length; e++) {
+      if (open.hasEdge(e)) {
+        open.openEdge(e);
+      }
+    }
+    SearchResult aStar = new AStarSearch(open).search(0, 399);
+    SearchResult bfs = new GridSearch(open).search(0, 399, new IntQueue());
+    t.checkExpect(aStar.path.length, 39);
+    t.checkExpect(aStar.order.length, 39);
+    t.checkExpect(bfs.order.length, 399);
+    t.checkExpect(new AStarSearch(new MazeGrid(2, 2)).search(0, 3).path, new int[0]);
+  }
+
+  // tests for the bfs from both ends
+  void testBidirectionalSearch(Tester t) {
+    this.initData();
+    Maze m = this.testGame2;
+    int goal = m.grid.size() - 1;
+    MeetingResult both = m.bidirectionalSearch(0, goal);
+    t.checkExpect(both.path, m.answerPath(0, goal));
+    // the meeting cell is on the path
+    boolean onPath = false;
+    for (int cell : both.path) {
+      onPath = onPath || cell == both.meeting;
+    }
+    t.checkExpect(onPath, true);
+
+    // on a maze with loops, the path is still a shortest one
+    MazeGrid open = new MazeGrid(15, 15);
+    for (int e = 0; e < open.weights.length; e++) {
+      if (open.hasEdge(e)) {
+        open.openEdge(e);
+      }
+    }
+    t.checkExpect(new BidirectionalSearch(open).search(0, 224).path.length, 29);
+    t.checkExpect(new BidirectionalSearch(open).search(16, 17).path, new int[] { 16, 17 });
+    t.checkExpect(new BidirectionalSearch(open).search(7, 7).meeting, 7);
+
+    MeetingResult none = new BidirectionalSearch(new MazeGrid(3, 3)).search(0, 8);
+    t.checkExpect(none.path, new int[0]);
+    t.checkExpect(none.meeting, -1);
+
+    // a maze keeps one search, and every query finds what a new search would
+    t.checkExpect(m.meetingSearch.grid, m.grid);
+    BidirectionalSearch reused = new BidirectionalSearch(open);
+    int[][] queries = new int[][] { { 0, 224 }, { 16, 17 }, { 7, 7 }, { 100, 3 }, { 0, 224 } };
+    for (int[] q : queries) {
+      MeetingResult again = reused.search(q[0], q[1]);
+      MeetingResult fresh = new BidirectionalSearch(open).search(q[0], q[1]);
+      t.checkExpect(again.path, fresh.path);
+      t.checkExpect(again.order, fresh.order);
+    }
+    // a short query only makes room for the cells it expands
+    BidirectionalSearch near = new BidirectionalSearch(open);
+    t.checkExpect(near.search(16, 17).order.length < 16, true);
+    t.checkExpect(near.order.length, 16);
+    // and only the cells it reached are marked as reached afterwards
+    reused.forgetLastSearch();
+    int[] unreached = new int[open.size()];
+    Arrays.fill(unreached, -1);
+    t.checkExpect(reused.distFromStart, unreached);
+    t.checkExpect(reused.distFromEnd, unreached);
+  }
+
+  // tests for PathCache
+  void testPathCache(Tester t) {
+    PathCache<String> cache = new PathCache<String>(2);
+    PathQuery q1 = new PathQuery(1, 0, 5, "answer");
+    PathQuery q2 = new PathQuery(1, 0, 5, "shortest");
+    PathQuery q3 = new PathQuery(2, 0, 5, "answer");
+    t.checkExpect(q1.equals(new PathQuery(1, 0, 5, "answer")), true);
+    t.checkExpect(q1.hashCode(), new PathQuery(1, 0, 5, "answer").hashCode());
+    t.checkExpect(q1.equals(q3), false);
+
+    cache.put(q1, "a");
+    cache.put(q2, "b");
+    // using q1 makes q2 the least recently used
+    t.checkExpect(cache.get(q1), "a");
+    cache.put(q3, "c");
+    t.checkExpect(cache.size(), 2);
+    t.checkExpect(cache.get(q2), null);
+    t.checkExpect(cache.get(q1), "a");
+    t.checkExpect(cache.get(q3), "c");
+    cache.clear();
+    t.checkExpect(cache.get(q1), null);
+    t.checkConstructorException(
+        new IllegalArgumentException("A cache must hold at least one answer"), "PathCache", 0);
+  }
+
+  // tests for the answers remembered by a maze
+  void testCachedAnswerPath(Tester t) {
+    this.initData();
+    Maze m = this.testGame1;
+    int goal = m.grid.size() - 1;
+    int[] answer = m.answerPath(0, goal);
+    // asking again, or ending the game, reuses the same answer
+    t.checkExpect(m.answerPath(0, goal) == answer, true);
+    m.makeEndScene();
+    t.checkExpect(m.answerPath == answer, true);
+    t.checkExpect(m.shortestPath(0, goal) == m.shortestPath(0, goal), true);
+    t.checkExpect(m.pathCache.size(), 2);
+
+    // a new maze never gets the old answer
+    int generation = m.generation;
+    m.onKeyEvent("r");
+    t.checkExpect(m.generation, generation + 1);
+    t.checkExpect(m.pathCache.size(), 0);
+    t.checkExpect(m.answerPath(0, goal) == answer, false);
+  }
+
+  // tests for LcaIndex
+  void testLcaIndex(Tester t) {
+    //      0
+    //    /   \
+    //   1     2
+    //  / \     \
+    // 3   4     5
+    //           |
+    //           6
+    LcaIndex index = new LcaIndex(new int[] { 0, 0, 0, 1, 1, 2, 5 });
+    t.checkExpect(index.lca(3, 4), 1);
+    t.checkExpect(index.lca(4, 6), 0);
+    t.checkExpect(index.lca(6, 2), 2);
+    t.checkExpect(index.lca(5, 5), 5);
+    t.checkExpect(index.distance(3, 6), 5);
+    t.checkExpect(index.distance(6, 0), 3);
+    t.checkExpect(index.path(3, 6), new int[] { 3, 1, 0, 2, 5, 6 });
+    t.checkExpect(index.path(2, 6), new int[] { 2, 5, 6 });
+    t.checkExpect(index.distances(new int[] { 3, 4, 6 }, new int[] { 4, 6, 6 }),
+        new int[] { 2, 5, 0 });
+    t.checkConstructorException(
+        new IllegalArgumentException("Every cell must be connected to the root"), "LcaIndex",
+        new int[] { 0, -1 });
+    t.checkException(new IllegalArgumentException("Every query needs a from and a to cell"),
+        index, "distances", new int[] { 1 }, new int[0]);
+
+    // on a generated maze, agrees with searching for the path
     this.initData();
-    Maze testMaze = new Maze(2, 4, this.user);
-    t.checkExpect(testMaze.cells.size(), 2 * 4);
+    Maze m = this.testGame2;
+    Random r = new Random(5);
+    for (int i = 0; i < 10; i++) {
+      int a = r.nextInt(m.grid.size());
+      int b = r.nextInt(m.grid.size());
+      int[] path = m.search(a, b, new IntQueue()).path;
+      t.checkExpect(m.treeIndex().path(a, b), path);
+      t.checkExpect(m.distance(a, b), path.length - 1);
+    }
+    t.checkExpect(m.treeIndex() == m.treeIndex(), true);
+  }
+
+  // tests for BoardRenderer
+  void testBoardRenderer(Tester t) {
+    this.initData();
+    Maze m = this.testGame2;
+    BoardRenderer r = (BoardRenderer) m.renderer;
+    t.checkExpect(r.blocksWide, 7);
+    t.checkExpect(r.blocksHigh, 4);
+    t.checkExpect(r.isDirty(), true);
+    WorldImage first = r.draw(m.grid);
+    t.checkExpect(r.isDirty(), false);
+    // nothing changed, so the same board comes back
+    t.checkExpect(r.draw(m.grid) == first, true);
+
+    WorldImage untouched = r.blocks[0];
+    int c = m.grid.index(40, 20);
+    m.paint(c, MazeGrid.ANSWER);
+    t.checkExpect(r.dirtyCells.cardinality(), 1);
+    t.checkExpect(r.dirtyBlocks.get(1 * 7 + 2), true);
+    t.checkExpect(r.dirtyBlockRows.get(1), true);
+    // painting a cell the color it already is changes nothing
+    m.paint(c, MazeGrid.ANSWER);
+    t.checkExpect(r.dirtyCells.cardinality(), 1);
+    t.checkExpect(r.draw(m.grid) == first, false);
+    // blocks that didn't change are reused
+    t.checkExpect(r.blocks[0] == untouched, true);
+    t.checkExpect(r.tiles[c],
+        new RectangleImage(m.cellSize, m.cellSize, OutlineMode.SOLID, Color.orange)
+            .movePinholeTo(new Posn(0, 0)));
+    // the walls are only drawn once, and only the colors are rebuilt
+    WallLayer walls = r.walls;
+    t.checkExpect(walls.image() == walls.image(), true);
+    m.paint(c, MazeGrid.GOAL);
+    r.draw(m.grid);
+    t.checkExpect(r.walls == walls, true);
+    // making the maze again draws new walls
+    m.initMaze();
+    m.renderer.draw(m.grid);
+    t.checkExpect(((BoardRenderer) m.renderer).walls == walls, false);
+  }
+
+  // tests for WallLayer
+  void testWallLayer(Tester t) {
+    MazeGrid grid = new MazeGrid(3, 1);
+    grid.openEdge(grid.rightEdge(1));
+    grid.openEdge(grid.bottomEdge(2));
+    // a window of the last two cells
+    WallLayer walls = new WallLayer(grid, 1, 0, 2, 1, 10);
+    // the first cell only has its bottom row, the second only its last column
+    t.checkExpect(walls.isWall(3, 9), true);
+    t.checkExpect(walls.isWall(9, 3), false);
+    t.checkExpect(walls.isWall(19, 3), true);
+    t.checkExpect(walls.isWall(15, 9), false);
+    t.checkExpect(walls.pixels.cardinality(), 20);
+  }
+
+  // tests for TileCache
+  void testTileCache(Tester t) {
+    this.initData();
+    TileCache cache = new TileCache(50);
+    // cells of the same color share one tile
+    t.checkExpect(cache.square(MazeGrid.GRAY) == cache.square(MazeGrid.GRAY), true);
+    t.checkExpect(cache.square(MazeGrid.GRAY),
+        new RectangleImage(50, 50, OutlineMode.SOLID, Color.gray).movePinholeTo(new Posn(0, 0)));
+    t.checkExpect(cache.size(), 1);
+    t.checkExpect(cache.square(MazeGrid.ANSWER),
+        new RectangleImage(50, 50, OutlineMode.SOLID, Color.orange)
+            .movePinholeTo(new Posn(0, 0)));
+    t.checkExpect(cache.size(), 2);
+    t.checkConstructorException(
+        new IllegalArgumentException("A tile must be at least one pixel across"), "TileCache", 0);
+
+    // a whole board only needs a tile for each color
+    this.testGame2.renderer.draw(this.testGame2.grid);
+    t.checkExpect(this.testGame2.tileCache.size() <= MazeGrid.PALETTE.length, true);
+  }
+
+  // tests for RasterRenderer
+  void testRasterRenderer(Tester t) {
+    Maze m = new Maze(2, 2, this.user);
+    t.checkExpect(m.rasterMode, false);
+    t.checkExpect(new Maze(101, 60, this.user).rasterMode, true);
+    m.rasterMode = true;
+    m.renderer = m.makeRenderer();
+    RasterRenderer r = (RasterRenderer) m.renderer;
+    // a cell's square is its color, with a black line for each wall
+    m.grid.cells[1] = MazeGrid.RIGHT_WALL;
+    t.checkExpect(r.isDirty(), true);
+    t.checkExpect(m.renderer.draw(m.grid), r.image);
+    t.checkExpect(r.isDirty(), false);
+
+    m.paint(1, MazeGrid.ANSWER);
+    t.checkExpect(r.dirtyCells.cardinality(), 1);
+    m.renderer.draw(m.grid);
+    t.checkExpect(r.image.getPixel(50, 10), Color.orange);
+    t.checkExpect(r.image.getPixel(99, 10), Color.black);
+    t.checkExpect(r.image.getPixel(50, 49), Color.orange);
+    // and always into the same image
+    t.checkExpect(m.renderer.draw(m.grid) == r.image, true);
+  }
+
+  // tests for ViewportRenderer
+  void testViewportRenderer(Tester t) {
+    this.initData();
+    // the whole board fits, so there is no window
+    t.checkExpect(this.testGame2.renderer instanceof BoardRenderer, true);
+    t.checkExpect(this.testGame2.sceneWidth(), 1300);
+
+    Maze m = new Maze(300, 200, this.user);
+    t.checkExpect(m.sceneWidth(), 1300);
+    t.checkExpect(m.sceneHeight(), 780);
+    ViewportRenderer v = (ViewportRenderer) m.renderer;
+    RasterRenderer window = (RasterRenderer) v.window;
+    t.checkExpect(v.left, 0);
+    t.checkExpect(v.top, 0);
+    m.renderer.draw(m.grid);
+    t.checkExpect(v.isDirty(), false);
+
+    // only cells in view are redrawn, by their place in the window
+    m.paint(m.grid.index(150, 100), MazeGrid.ANSWER);
+    t.checkExpect(v.isDirty(), false);
+    m.paint(m.grid.index(10, 10), MazeGrid.ANSWER);
+    t.checkExpect(window.dirtyCells.get(10 * 100 + 10), true);
+    t.checkExpect(v.isDirty(), true);
+    m.renderer.draw(m.grid);
+
+    // the camera doesn't move while the player is well inside the window
+    v.follow(50, 30);
+    t.checkExpect(v.isDirty(), false);
+    // and keeps the player a quarter of the window away from its edge
+    v.follow(150, 100);
+    t.checkExpect(v.left, 76);
+    t.checkExpect(v.top, 56);
+    t.checkExpect(v.isDirty(), true);
+    // the window draws the cells from its new top left cell on
+    t.checkExpect(window.left, 76);
+    t.checkExpect(window.top, 56);
+    m.renderer.draw(m.grid);
+    t.checkExpect(window.image.getPixel(0, 0), m.grid.color(m.grid.index(76, 56)));
+    // but never past the edge of the board
+    v.follow(299, 199);
+    t.checkExpect(v.left, 200);
+    t.checkExpect(v.top, 140);
+    v.follow(0, 0);
+    t.checkExpect(v.left, 0);
+    t.checkExpect(v.top, 0);
+  }
+
+  // tests for OverviewRenderer
+  void testOverviewRenderer(Tester t) {
+    this.initData();
+    // a maze that already fits has nothing to zoom out to
+    t.checkExpect(this.testGame2.overviewZoom(), 1);
+    this.testGame2.toggleOverview();
+    t.checkExpect(this.testGame2.renderer instanceof BoardRenderer, true);
+
+    Maze m = new Maze(300, 200, this.user);
+    t.checkExpect(m.overviewZoom(), 4);
+    m.onKeyEvent("z");
+    OverviewRenderer o = (OverviewRenderer) m.renderer;
+    t.checkExpect(o.blocksWide, 75);
+    t.checkExpect(o.blocksHigh, 50);
+    t.checkExpect(o.isDirty(), true);
+    m.updateMaze();
+    t.checkExpect(m.renderer.draw(m.grid), o.image);
+    t.checkExpect(o.isDirty(), false);
+    // the player's block shows the player, and the goal's block the goal
+    t.checkExpect(o.summary[0], MazeGrid.PLAYER);
+    t.checkExpect(o.summary[o.summary.length - 1], MazeGrid.GOAL);
+    t.checkExpect(o.summary[1], MazeGrid.GRAY);
+
+    // only the block of a changed cell is summarized again
+    m.paint(m.grid.index(5, 2), MazeGrid.TRAIL);
+    t.checkExpect(o.dirtyBlocks.cardinality(), 1);
+    m.renderer.draw(m.grid);
+    t.checkExpect(o.summary[1], MazeGrid.TRAIL);
+    m.paint(m.grid.index(6, 3), MazeGrid.ANSWER);
+    m.renderer.draw(m.grid);
+    t.checkExpect(o.summary[1], MazeGrid.ANSWER);
+    t.checkExpect(o.rank(MazeGrid.GRAY), 5);
+
+    // zooming back in shows the cells around the player again
+    m.onKeyEvent("z");
+    t.checkExpect(m.renderer instanceof ViewportRenderer, true);
+    // a new maze keeps the zoom
+    m.onKeyEvent("z");
+    m.onKeyEvent("r");
+    t.checkExpect(m.renderer instanceof OverviewRenderer, true);
+  }
+
+  // tests for the changed cells updateVisitedColors recolors
+  void testUpdateVisitedColors(Tester t) {
+    this.initData();
+    Maze m = this.testGame4;
+    t.checkExpect(m.user.changed.size(), 1);
+    m.updateMaze();
+    t.checkExpect(m.grid.colors[0], MazeGrid.PLAYER);
+    t.checkExpect(m.user.changed.isEmpty(), true);
+
+    // moving recolors the cell left and the cell entered
+    m.user.updateCurrent(1);
+    m.grid.setVisited(1);
+    t.checkExpect(m.user.changed.size(), 2);
+    m.updateMaze();
+    t.checkExpect(m.grid.colors[0], MazeGrid.TRAIL);
+    t.checkExpect(m.grid.colors[1], MazeGrid.PLAYER);
+
+    // cells that didn't change aren't looked at
+    m.grid.colors[0] = MazeGrid.GRAY;
+    m.updateMaze();
+    t.checkExpect(m.grid.colors[0], MazeGrid.GRAY);
+
+    // a visited cell painted by an animation gets its trail back the tick after
+    m.paintStep(0, MazeGrid.SEARCHED);
+    t.checkExpect(m.changed.size(), 1);
+    m.updateMaze();
+    t.checkExpect(m.grid.colors[0], MazeGrid.TRAIL);
+    // and so does the goal
+    m.paintStep(3, MazeGrid.ANSWER);
+    m.updateMaze();
+    t.checkExpect(m.grid.colors[3], MazeGrid.GOAL);
+    // other cells keep the animation's color
+    m.paintStep(2, MazeGrid.ANSWER);
+    m.updateMaze();
+    t.checkExpect(m.grid.colors[2], MazeGrid.ANSWER);
+    t.checkExpect(m.changed.isEmpty(), true);
+  }
+
+  // tests for skipping idle frames
+  void testIdleFrames(Tester t) {
+    this.initData();
+    Maze m = this.testGame4;
+    t.checkExpect(m.isIdle(), false);
+    m.onTick();
+    t.checkExpect(m.isIdle(), true);
+    WorldScene first = m.makeScene();
+    // nothing changed, so the same scene comes back
+    m.onTick();
+    t.checkExpect(m.makeScene() == first, true);
+
+    // a step of an animation draws a new scene
+    m.showBreadthFirst();
+    t.checkExpect(m.isIdle(), false);
+    m.onTick();
+    WorldScene second = m.makeScene();
+    t.checkExpect(second == first, false);
+    t.checkExpect(m.makeScene() == second, true);
+    // and so does a new maze
+    m.onKeyEvent("r");
+    t.checkExpect(m.lastScene, null);
+    t.checkExpect(m.makeScene() == second, false);
+    // the end scene never changes the scene kept for the game
+    WorldScene kept = m.makeScene();
+    m.makeEndScene();
+    t.checkExpect(m.lastScene == kept, true);
+  }
+
+  // the bytes allocated so far by the thread running the tests
+  long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory
+        .getThreadMXBean()).getCurrentThreadAllocatedBytes();
+  }
+
+  // the most a frame that paints the given number of cells into pixels may
+  // allocate: ComputedPixelImage.setPixel makes a small array for every pixel
+  // it writes, so a cell costs up to 32 bytes for each of its pixels (but a
+  // frame that drew the whole board again would cost far more)
+  long paintBudget(Maze m, int cells) {
+    return (long) cells * m.cellSize * m.cellSize * 32;
+  }
+
+  // tests that a warm tick and key press allocate nothing, but for the pixels
+  // they paint
+  void testAllocationFree(Tester t) {
+    this.initData();
+    Maze m = this.testGame2;
+    // a pair of keys that moves the player away and back
+    String away = m.grid.isOpen(m.grid.rightEdge(0)) ? "right" : "down";
+    String back = away.equals("right") ? "left" : "up";
+    // what measuring itself costs
+    long overhead = -this.allocatedBytes() + this.allocatedBytes();
+    overhead = -this.allocatedBytes() + this.allocatedBytes();
+
+    for (int i = 0; i < 20000; i++) {
+      m.onKeyEvent(away);
+      m.onTick();
+      m.onKeyEvent(back);
+      m.onTick();
+      m.onKeyEvent("q");
+    }
+    long before = this.allocatedBytes();
+    for (int i = 0; i < 1000; i++) {
+      m.onKeyEvent(away);
+      m.onTick();
+      m.onKeyEvent(back);
+      m.onTick();
+      m.onKeyEvent("q");
+    }
+    t.checkExpect(this.allocatedBytes() - before - overhead, 0L);
+    t.checkExpect(m.user.current, 0);
+
+    // and so does a step of a search animation
+    m.onKeyEvent("b");
+    for (int i = 0; i < 200; i++) {
+      m.onTick();
+    }
+    before = this.allocatedBytes();
+    for (int i = 0; i < 200; i++) {
+      m.onTick();
+    }
+    t.checkExpect(this.allocatedBytes() - before - overhead, 0L);
+
+    // an idle frame reuses its scene and its WorldEnd
+    while (!m.isIdle()) {
+      m.onTick();
+    }
+    m.worldEnds();
+    before = this.allocatedBytes();
+    for (int i = 0; i < 1000; i++) {
+      m.onTick();
+      m.worldEnds();
+    }
+    t.checkExpect(this.allocatedBytes() - before - overhead, 0L);
+    t.checkExpect(m.worldEnds() == m.worldEnds(), true);
+
+    // a board drawn into pixels paints a changed frame into the same image, so
+    // a whole frame with a change, scene and WorldEnd included, allocates only
+    // what writing the changed cells' pixels costs, at most two cells a frame
+    // (a BoardRenderer builds new images for it)
+    Maze big = new Maze(101, 60, this.user);
+    away = big.grid.isOpen(big.grid.rightEdge(0)) ? "right" : "down";
+    back = away.equals("right") ? "left" : "up";
+    for (int i = 0; i < 20000; i++) {
+      big.onKeyEvent(away);
+      big.onTick();
+      big.worldEnds();
+      big.onKeyEvent(back);
+      big.onTick();
+      big.worldEnds();
+    }
+    before = this.allocatedBytes();
+    for (int i = 0; i < 1000; i++) {
+      big.onKeyEvent(away);
+      big.onTick();
+      big.worldEnds();
+      big.onKeyEvent(back);
+      big.onTick();
+      big.worldEnds();
+    }
+    t.checkExpect(this.allocatedBytes() - before - overhead <= this.paintBudget(big, 2 * 2000),
+        true);
+    t.checkExpect(big.user.current, 0);
+
+    // and so does starting a search again and animating it
+    for (int i = 0; i < 2000; i++) {
+      big.onKeyEvent(i % 2 == 0 ? "b" : "d");
+      big.onTick();
+      big.worldEnds();
+    }
+    before = this.allocatedBytes();
+    for (int i = 0; i < 1000; i++) {
+      big.onKeyEvent(i % 2 == 0 ? "b" : "d");
+      big.onTick();
+      big.worldEnds();
+    }
+    t.checkExpect(this.allocatedBytes() - before - overhead <= this.paintBudget(big, 2 * 1000),
+        true);
+  }
+
+  // tests for the key dispatch table
+  void testKeyActions(Tester t) {
+    this.initData();
+    Maze m = this.testGame4;
+    t.checkExpect(m.keyActions.size(), 11);
+    m.onKeyEvent("b");
+    t.checkExpect(m.showBFS, true);
+    // moving off the board or through a wall does nothing
+    m.onKeyEvent("up");
+    m.onKeyEvent("left");
+    t.checkExpect(m.user.current, 0);
+    boolean right = m.grid.isOpen(m.grid.rightEdge(0));
+    if (!m.grid.isOpen(m.grid.bottomEdge(0))) {
+      m.onKeyEvent("down");
+      t.checkExpect(m.user.current, 0);
+    }
+    m.onKeyEvent(right ? "right" : "down");
+    t.checkExpect(m.user.current, right ? 1 : 2);
+    t.checkExpect(m.grid.isVisited(m.user.current), true);
+    m.onKeyEvent("q");
+
+    // l adds loops, s shows the lightest path through them
+    this.initData();
+    Maze loops = this.testGame2;
+    int open = 0;
+    for (int e = 0; e < loops.grid.weights.length; e++) {
+      if (loops.grid.hasEdge(e) && loops.grid.isOpen(e)) {
+        open += 1;
+      }
+    }
+    t.checkExpect(open, loops.grid.size() - 1);
+    int[] before = loops.shortestPath(0, loops.grid.size() - 1);
+    MazeGrid tree = new MazeGrid(loops.width, loops.height);
+    tree.cells = Arrays.copyOf(loops.grid.cells, loops.grid.size());
+    int[] parents = loops.treeParent;
+    loops.onKeyEvent("l");
+    // the tree the answer walks is the spanning tree from before the loops
+    t.checkExpect(loops.treeParent == parents, true);
+    t.checkExpect(loops.treeParent, tree.treeParents(loops.grid.size() - 1));
+    t.checkExpect(loops.distance(0, loops.grid.size() - 1),
+        loops.answerPath(0, loops.grid.size() - 1).length - 1);
+    int braided = 0;
+    for (int e = 0; e < loops.grid.weights.length; e++) {
+      if (loops.grid.hasEdge(e) && loops.grid.isOpen(e)) {
+        braided += 1;
+      }
+    }
+    t.checkExpect(braided, loops.grid.size() - 1 + loops.grid.size() / 20);
+    // the old lightest path isn't remembered past the new walls
+    t.checkExpect(loops.shortestPath(0, loops.grid.size() - 1) == before, false);
+    loops.onKeyEvent("s");
+    t.checkExpect(loops.showAnswer, true);
+    t.checkExpect(loops.answerPath, loops.shortestPath(0, loops.grid.size() - 1));
+    while (loops.showAnswer) {
+      loops.onTick();
+    }
+    t.checkExpect(loops.grid.colors[loops.answerPath[loops.answerPath.length / 2]],
+        MazeGrid.ANSWER);
+  }
+
+  // tests for building the spanning tree in strips
+  void testStripKruskal(Tester t) {
+    // a single strip is plain krusgal's algorithm
+    MazeGrid one = new MazeGrid(20, 17);
+    one.setRandomWeights(new Random(5));
+    MazeGrid plain = new MazeGrid(20, 17);
+    plain.setRandomWeights(new Random(5));
+    UnionFind groups = new UnionFind(plain.size());
+    for (int e : plain.edgesByWeight()) {
+      if (groups.union(plain.edgeFrom(e), plain.edgeTo(e))) {
+        plain.openEdge(e);
+      }
+    }
+    t.checkExpect(one.stripKruskal(1).groups, 1);
+    t.checkExpect(one.cells, plain.cells);
+
+    // strips only look at the edges between their own rows
+    t.checkExpect(one.edgesByWeight(0, 1).length, 19);
+    t.checkExpect(one.edgesByWeight(2, 4).length, 2 * 19 + 20);
+    t.checkExpect(one.edgesByWeight(0, 17), one.edgesByWeight());
+
+    // however many strips, the result is one tree over every cell
+    for (int strips = 2; strips <= 20; strips += 6) {
+      MazeGrid grid = new MazeGrid(20, 17);
+      grid.setRandomWeights(new Random(strips));
+      t.checkExpect(grid.stripKruskal(strips).groups, 1);
+      int open = 0;
+      for (int e = 0; e < grid.weights.length; e++) {
+        if (grid.hasEdge(e) && grid.isOpen(e)) {
+          open += 1;
+        }
+      }
+      t.checkExpect(open, grid.size() - 1);
+      t.checkExpect(Arrays.stream(grid.treeParents(0)).min().getAsInt() >= 0, true);
+    }
+
+    // the strips are joined in many places, not through one passage each
+    MazeGrid wide = new MazeGrid(40, 17);
+    wide.setRandomWeights(new Random(5), 4);
+    wide.stripKruskal(4);
+    int[] firstRows = wide.stripRows(4);
+    t.checkExpect(firstRows, new int[] { 0, 4, 8, 12, 17 });
+    for (int s = 1; s < 4; s++) {
+      int crossings = 0;
+      for (int x = 0; x < 40; x++) {
+        if (wide.isOpen(wide.bottomEdge(wide.index(x, firstRows[s] - 1)))) {
+          crossings += 1;
+        }
+      }
+      t.checkExpect(crossings > 1, true);
+    }
+    t.checkExpect(wide.stripRows(30).length, 18);
+
+    // weights drawn in strips are all in range, and the same seed gives the
+    // same weights
+    MazeGrid again = new MazeGrid(40, 17);
+    again.setRandomWeights(new Random(5), 4);
+    t.checkExpect(again.weights, wide.weights);
+    boolean inRange = true;
+    for (int e = 0; e < again.weights.length; e++) {
+      inRange = inRange && again.weights[e] >= 0 && again.weights[e] < MazeGrid.MAX_WEIGHT
+          && (again.hasEdge(e) || again.weights[e] == 0);
+    }
+    t.checkExpect(inRange, true);
+
+    // a maze built in strips plays like any other
+    Maze m = new Maze(30, 12, this.user);
+    t.checkExpect(m.strips, 1);
+    m.strips = 4;
+    m.initMaze();
+    m.initPlayer();
+    int passages = 0;
+    for (int e = 0; e < m.grid.weights.length; e++) {
+      if (m.grid.hasEdge(e) && m.grid.isOpen(e)) {
+        passages += 1;
+      }
+    }
+    t.checkExpect(passages, m.grid.size() - 1);
+    t.checkExpect(m.answerPath(0, m.grid.size() - 1),
+        m.search(0, m.grid.size() - 1, new IntQueue()).path);
+
+    UnionFind whole = new UnionFind(6);
+    UnionFind part = new UnionFind(3);
+    part.union(0, 2);
+    whole.absorb(part, 3);
+    t.checkExpect(whole.groups, 5);
+    t.checkExpect(whole.sameGroup(3, 5), true);
+    t.checkExpect(whole.sameGroup(3, 4), false);
+  }
+
+  // tests for find, union and sameGroup of UnionFind
+  void testUnionFind(Tester t) {
+    UnionFind uf = new UnionFind(5);
+    t.checkExpect(uf.groups, 5);
+    t.checkExpect(uf.find(3), 3);
+    t.checkExpect(uf.sameGroup(0, 1), false);
+
+    t.checkExpect(uf.union(0, 1), true);
+    t.checkExpect(uf.union(2, 3), true);
+    t.checkExpect(uf.union(1, 3), true);
+    // already joined, so nothing changes
+    t.checkExpect(uf.union(0, 2), false);
+    t.checkExpect(uf.groups, 2);
+    t.checkExpect(uf.sameGroup(0, 3), true);
+    t.checkExpect(uf.sameGroup(4, 3), false);
+    // two trees of equal rank make a tree of rank 2
+    t.checkExpect(uf.rank[uf.find(0)], (byte) 2);
   }
 
   // test setCellWalls using random seed of 5
@@ -982,6 +2117,61 @@ class ExamplesMaze {
     // check that the method didn't mutate the original list
     t.checkExpect(this.edges1,
         new ArrayList<Edge>(Arrays.asList(this.e1, this.e2, this.e3, this.e4)));
+
+    // edges of equal weight keep their order
+    this.e4.setWeight(2);
+    t.checkExpect(mu.sortEdges(this.edges1),
+        new ArrayList<Edge>(Arrays.asList(this.e2, this.e4, this.e1, this.e3)));
+    t.checkExpect(mu.sortEdges(new ArrayList<Edge>()), new ArrayList<Edge>());
+
+    // weights as far apart as they can be are still in order
+    this.e1.setWeight(Integer.MAX_VALUE);
+    this.e2.setWeight(Integer.MIN_VALUE);
+    this.e3.setWeight(-7);
+    this.e4.setWeight(-7);
+    t.checkExpect(mu.sortEdges(this.edges1),
+        new ArrayList<Edge>(Arrays.asList(this.e2, this.e3, this.e4, this.e1)));
+    this.e3.setWeight(1000000);
+    t.checkExpect(mu.sortEdges(this.edges1),
+        new ArrayList<Edge>(Arrays.asList(this.e2, this.e4, this.e3, this.e1)));
+    t.checkExpect(this.edges1,
+        new ArrayList<Edge>(Arrays.asList(this.e1, this.e2, this.e3, this.e4)));
+  }
+
+  // tests for edgesByWeight
+  void testEdgesByWeight(Tester t) {
+    MazeGrid grid = new MazeGrid(2, 2);
+    grid.setWeight(grid.rightEdge(0), 7);
+    grid.setWeight(grid.bottomEdge(0), 3);
+    grid.setWeight(grid.bottomEdge(1), 7);
+    grid.setWeight(grid.rightEdge(2), 0);
+    // edges that leave the grid are never included
+    grid.setWeight(grid.rightEdge(1), 1);
+    t.checkExpect(grid.edgesByWeight(), new int[] { grid.rightEdge(2), grid.bottomEdge(0),
+        grid.rightEdge(0), grid.bottomEdge(1) });
+
+    this.initData();
+    int[] order = this.testGame2.grid.edgesByWeight();
+    // every right edge but the last column's and every bottom edge but the
+    // last row's
+    t.checkExpect(order.length, 99 * 60 + 100 * 59);
+    boolean sorted = true;
+    for (int i = 1; i < order.length; i++) {
+      sorted = sorted && this.testGame2.grid.weights[order[i - 1]]
+          <= this.testGame2.grid.weights[order[i]];
+    }
+    t.checkExpect(sorted, true);
+
+    // weights outside [0, MAX_WEIGHT) are never stored
+    t.checkException(
+        new IllegalArgumentException("An edge weight must be at least 0 and less than 50"),
+        grid, "setWeight", grid.rightEdge(0), MazeGrid.MAX_WEIGHT);
+    t.checkException(
+        new IllegalArgumentException("An edge weight must be at least 0 and less than 50"),
+        grid, "setWeight", grid.rightEdge(0), -1);
+    t.checkExpect(grid.weights[grid.rightEdge(0)], 7);
+    grid.setWeight(grid.rightEdge(0), MazeGrid.MAX_WEIGHT - 1);
+    t.checkExpect(grid.weights[grid.rightEdge(0)], 49);
   }
 
   // test for answerPath using a random seed of 5
@@ -1138,8 +2328,8 @@ class ExamplesMaze {
     this.initData();
     // make the bigbang world
     Maze m = this.testGame;
-    int worldWidth = (this.testGame.cellSize * (this.testGame.width));
-    int worldHeight = (this.testGame.cellSize * (this.testGame.height));
+    int worldWidth = this.testGame.sceneWidth();
+    int worldHeight = this.testGame.sceneHeight();
     double tickRate = 0.01;
     m.bigBang(worldWidth, worldHeight, tickRate);
   }